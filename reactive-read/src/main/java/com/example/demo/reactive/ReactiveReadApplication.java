@@ -0,0 +1,21 @@
+package com.example.demo.reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+/**
+ * реактивный модуль чтения (WebFlux + R2DBC) для горячих запросов по ключу:
+ * GET /animals/{id}, GET /locations/{id}, GET /animals/types/{id}
+ * работает с той же схемой postgres, что и основное приложение, на отдельном порту
+ * @author ROMAN
+ * @date 2023-03-14
+ * @version 1.0
+ */
+@SpringBootApplication
+public class ReactiveReadApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.run(ReactiveReadApplication.class, args);
+	}
+
+}
@@ -0,0 +1,95 @@
+package com.example.demo.reactive.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpCookie;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.web.server.context.ServerSecurityContextRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * чтение контекста безопасности из зашифрованной cookie SESSION_TOKEN, выпущенной основным приложением
+ * (CookieSecurityContextRepository, AES-GCM, тот же session.cookie.secret и срок действия)
+ * модуль только читает cookie: выпуск и перевыпуск по истечении половины срока делает основное приложение
+ * @author ROMAN
+ * @date 2023-03-14
+ * @version 1.0
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "session.cookie.enabled", havingValue = "true")
+public class CookieSecurityContextReader implements ServerSecurityContextRepository {
+
+    public static final String COOKIE_NAME = "SESSION_TOKEN";
+
+    private static final int IV_LENGTH = 12;
+
+    private static final int TAG_LENGTH = 128;
+
+    private final SecretKeySpec key;
+
+    private final long ttlSeconds;
+
+    public CookieSecurityContextReader(@Value("${session.cookie.secret}") String secret,
+                                       @Value("${session.cookie.ttl-seconds:1800}") long ttlSeconds) throws GeneralSecurityException {
+        this.key = new SecretKeySpec(MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.UTF_8)), "AES");
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    @Override
+    public Mono<Void> save(ServerWebExchange exchange, SecurityContext context)
+    {
+        return Mono.empty();
+    }
+
+    @Override
+    public Mono<SecurityContext> load(ServerWebExchange exchange)
+    {
+        HttpCookie cookie = exchange.getRequest().getCookies().getFirst(COOKIE_NAME);
+        if (cookie==null)
+        {
+            return Mono.empty();
+        }
+        try
+        {
+            String[] parts = decrypt(cookie.getValue()).split("\n", 3);
+            long issued = Long.parseLong(parts[0]);
+            if (issued + ttlSeconds > Instant.now().getEpochSecond())
+            {
+                return Mono.just(new SecurityContextImpl(new UsernamePasswordAuthenticationToken(parts[2], null,
+                        AuthorityUtils.commaSeparatedStringToAuthorityList(parts[1]))));
+            }
+        }
+        catch (GeneralSecurityException | RuntimeException ex)
+        {
+            log.warn("session cookie rejected: {}", ex.getMessage());
+        }
+        return Mono.empty();
+    }
+
+    private String decrypt(String token) throws GeneralSecurityException
+    {
+        byte[] data = Base64.getUrlDecoder().decode(token);
+        if (data.length<=IV_LENGTH)
+        {
+            throw new GeneralSecurityException("token is too short");
+        }
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, data, 0, IV_LENGTH));
+        return new String(cipher.doFinal(data, IV_LENGTH, data.length - IV_LENGTH), StandardCharsets.UTF_8);
+    }
+}
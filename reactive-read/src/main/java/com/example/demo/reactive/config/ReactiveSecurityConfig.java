@@ -0,0 +1,47 @@
+package com.example.demo.reactive.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+
+/**
+ * конфигурация безопасности реактивного модуля с теми же правилами, что у SecurityConfig основного приложения:
+ * HTTP Basic по таблице account (bcrypt 12), любой запрос только от авторизованного аккаунта с ролью ROLE_USER
+ * при session.cookie.enabled=true принимается и зашифрованная cookie основного приложения (CookieSecurityContextReader)
+ * @author ROMAN
+ * @date 2023-03-14
+ * @version 1.0
+ */
+@Configuration
+@EnableWebFluxSecurity
+@EnableReactiveMethodSecurity
+public class ReactiveSecurityConfig {
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http, ObjectProvider<CookieSecurityContextReader> cookieSecurityContextReader)
+    {
+        http
+                .csrf().disable()
+                .httpBasic().and()
+                .authorizeExchange()
+                .anyExchange().authenticated();
+
+        CookieSecurityContextReader repository = cookieSecurityContextReader.getIfAvailable();
+        if (repository!=null)
+        {
+            http.securityContextRepository(repository);
+        }
+        return http.build();
+    }
+
+    @Bean("encoder")
+    public BCryptPasswordEncoder encoder()
+    {
+        return new BCryptPasswordEncoder(12);
+    }
+}
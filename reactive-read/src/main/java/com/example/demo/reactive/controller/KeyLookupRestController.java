@@ -0,0 +1,181 @@
+package com.example.demo.reactive.controller;
+
+import com.example.demo.reactive.service.KeyLookupService;
+import com.example.demo.reactive.service.dto.AnimalDto;
+import com.example.demo.reactive.service.dto.AnimalTypeDto;
+import com.example.demo.reactive.service.dto.LocationPointDto;
+import com.example.demo.reactive.service.dto.VersionDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * реактивный контроллер чтения животных, точек локации и типов животных по id
+ * пути, коды ответа и условные запросы (ETag, Last-Modified) совпадают с AnimalRestController и LocationRestController:
+ * 304 определяется по запросу только версии, тело строки читается лишь при изменившейся версии
+ * @author ROMAN
+ * @date 2023-03-14
+ * @version 1.0
+ */
+@Slf4j
+@RestController
+public class KeyLookupRestController {
+
+
+    private final KeyLookupService keyLookupService;
+
+    @Autowired
+    public KeyLookupRestController(KeyLookupService keyLookupService) {
+        this.keyLookupService = keyLookupService;
+    }
+
+    /**
+     * получение информации о животном
+     * запрос может быть выполнен только пользователем с ролью user
+     * @param id
+     * @param exchange
+     * @return
+     * 200 - запрос успешно выполнен;
+     * 304 - животное не изменилось (If-None-Match, If-Modified-Since);
+     * 400 - неверные параметры запроса;
+     * 401 - неверные авторизационные данные, запрос от неваторизованного аккаунта;
+     * 404 - животное с id не найдено;
+     */
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/animals/{id}")
+    public Mono<ResponseEntity<AnimalDto>> findAnimalById(@PathVariable Long id, ServerWebExchange exchange)
+    {
+        log.info("searching information about animal by id {}", id);
+        return find("animal", id, exchange, keyLookupService::findAnimalVersionById, keyLookupService::findAnimalById,
+                AnimalDto::getVersion, AnimalDto::getUpdatedAt);
+    }
+
+    /**
+     * получение информации о точке локации животных
+     * запрос может быть выполнен только пользователями с ролью user
+     * @param id
+     * @param exchange
+     * @return
+     * 200 - запрос успешно выполнен;
+     * 304 - точка локации не изменилась (If-None-Match, If-Modified-Since);
+     * 400 - неверные апараметры запроса;
+     * 401 - неверные авторизационные данные;
+     * 404 - точка локации с id не найдена;
+     */
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/locations/{id}")
+    public Mono<ResponseEntity<LocationPointDto>> findByLocationPointId(@PathVariable Long id, ServerWebExchange exchange)
+    {
+        log.info("searching location point by id {}", id);
+        return find("location point", id, exchange, keyLookupService::findLocationPointVersionById, keyLookupService::findLocationPointById,
+                LocationPointDto::getVersion, LocationPointDto::getUpdatedAt);
+    }
+
+    /**
+     * получение информации о типе животного
+     * запрос может быть выполнен только пользователями с ролью user
+     * @param id
+     * @param exchange
+     * @return
+     * 200 - запрос успешно выполнен;
+     * 304 - тип животного не изменился (If-None-Match, If-Modified-Since);
+     * 400 - неверные параметры запроса;
+     * 401 - неверные авторизационные данные;
+     * 404 - тип животного с id не найден;
+     */
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/animals/types/{id}")
+    public Mono<ResponseEntity<AnimalTypeDto>> findAnimalTypeById(@PathVariable Long id, ServerWebExchange exchange)
+    {
+        log.info("searching animal type by id {}", id);
+        return find("animal type", id, exchange, keyLookupService::findAnimalTypeVersionById, keyLookupService::findAnimalTypeById,
+                AnimalTypeDto::getVersion, AnimalTypeDto::getUpdatedAt);
+    }
+
+    /**
+     * общий порядок обработки: проверка id, запрос версии, 304 или чтение строки
+     * @param name имя сущности для журнала
+     * @param id
+     * @param exchange
+     * @param versionLookup запрос версии
+     * @param lookup запрос строки
+     * @param version версия прочитанной строки
+     * @param updatedAt время изменения прочитанной строки
+     * @param <T> dto
+     * @return ResponseEntity
+     */
+    private <T> Mono<ResponseEntity<T>> find(String name, Long id, ServerWebExchange exchange,
+                                             Function<Long, Mono<VersionDto>> versionLookup, Function<Long, Mono<T>> lookup,
+                                             Function<T, Long> version, Function<T, OffsetDateTime> updatedAt)
+    {
+        if (!checkId(id))
+        {
+            log.warn("id is mandatory and must be positive");
+            return Mono.just(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        }
+        Supplier<Mono<ResponseEntity<T>>> notFound = () -> {
+            log.warn("{} was not found", name);
+            return Mono.just(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+        };
+        return versionLookup.apply(id)
+                .flatMap(view -> {
+                    if (exchange.checkNotModified(tagOf(view.getVersion()), instantOf(view.getUpdatedAt())))
+                    {
+                        log.info("{} with id {} was not modified", name, id);
+                        return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).<T>build());
+                    }
+                    return lookup.apply(id).map(dto -> {
+                        log.info("find {} with id {}", name, id);
+                        ResponseEntity.BodyBuilder builder = ResponseEntity.ok().eTag(tagOf(version.apply(dto)));
+                        if (updatedAt.apply(dto)!=null)
+                        {
+                            builder.lastModified(updatedAt.apply(dto).toInstant());
+                        }
+                        return builder.body(dto);
+                    });
+                })
+                .switchIfEmpty(Mono.defer(notFound));
+    }
+
+    /**
+     * строгий ETag для версии строки, тот же формат, что у EntityTags основного приложения
+     * @param version
+     * @return quoted entity tag
+     */
+    private static String tagOf(Long version)
+    {
+        return "\"" + version + "\"";
+    }
+
+    private static Instant instantOf(OffsetDateTime updatedAt)
+    {
+        return updatedAt!=null ? updatedAt.toInstant() : Instant.MIN;
+    }
+
+    /**
+     * проверка id
+     * @param id
+     * @return true if id is positive
+     */
+    private Boolean checkId(Long id)
+    {
+        Boolean isAllowId = false;
+        if (id!=null)
+        {
+            isAllowId = id>0;
+        }
+        return isAllowId;
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.example.demo.reactive.service;
+
+import com.example.demo.reactive.service.dto.AnimalDto;
+import com.example.demo.reactive.service.dto.AnimalTypeDto;
+import com.example.demo.reactive.service.dto.LocationPointDto;
+import com.example.demo.reactive.service.dto.VersionDto;
+import reactor.core.publisher.Mono;
+
+/**
+ * интерфейс чтения животных, точек локации и типов животных по id через R2DBC
+ * каждый метод выполняет один запрос, соединение занято только на время этого запроса
+ * @author ROMAN
+ * @date 2023-03-14
+ * @version 1.0
+ */
+public interface KeyLookupService {
+
+    /**
+     * поиск животного по id
+     * @param id
+     * @return AnimalDto or empty
+     */
+    Mono<AnimalDto> findAnimalById(Long id);
+
+    /**
+     * версия животного по id без выборки типов и посещенных точек
+     * @param id
+     * @return VersionDto or empty
+     */
+    Mono<VersionDto> findAnimalVersionById(Long id);
+
+    /**
+     * поиск точки локации по id
+     * @param id
+     * @return LocationPointDto or empty
+     */
+    Mono<LocationPointDto> findLocationPointById(Long id);
+
+    /**
+     * версия точки локации по id
+     * @param id
+     * @return VersionDto or empty
+     */
+    Mono<VersionDto> findLocationPointVersionById(Long id);
+
+    /**
+     * поиск типа животного по id
+     * @param id
+     * @return AnimalTypeDto or empty
+     */
+    Mono<AnimalTypeDto> findAnimalTypeById(Long id);
+
+    /**
+     * версия типа животного по id
+     * @param id
+     * @return VersionDto or empty
+     */
+    Mono<VersionDto> findAnimalTypeVersionById(Long id);
+}
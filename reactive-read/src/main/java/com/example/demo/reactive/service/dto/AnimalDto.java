@@ -0,0 +1,63 @@
+package com.example.demo.reactive.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.OffsetDateTime;
+
+/**
+ * dto животного для ответа реактивного модуля
+ * поля и их порядок совпадают с com.example.demo.service.dto.AnimalDto основного приложения,
+ * поэтому тело ответа одинаково на обоих портах
+ * @author ROMAN
+ * @date 2023-03-14
+ * @version 1.0
+ */
+@NoArgsConstructor
+@Data
+public class AnimalDto {
+
+    @JsonProperty
+    private Long id;
+
+    @JsonProperty
+    private long[] animalTypes;
+
+    @JsonProperty
+    private Float weight;
+
+    @JsonProperty
+    private Float height;
+
+    @JsonProperty
+    private Float length;
+
+    @JsonProperty
+    private String gender;
+
+    @JsonProperty
+    private String lifeStatus;
+
+    @JsonProperty
+    private OffsetDateTime chippingDateTime;
+
+    @JsonProperty
+    private Integer chipperId;
+
+    @JsonProperty(value = "chippingLocationId")
+    private Long chippingLocationId;
+
+    @JsonProperty(value = "visitedLocations")
+    private long[] visitedLocations;
+
+    @JsonProperty
+    private OffsetDateTime deathDateTime;
+
+    @JsonIgnore
+    private Long version;
+
+    @JsonIgnore
+    private OffsetDateTime updatedAt;
+
+}
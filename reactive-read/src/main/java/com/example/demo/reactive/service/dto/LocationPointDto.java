@@ -0,0 +1,34 @@
+package com.example.demo.reactive.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.OffsetDateTime;
+
+/**
+ * dto точки локации для ответа реактивного модуля
+ * @author ROMAN
+ * @date 2023-03-14
+ * @version 1.0
+ */
+@NoArgsConstructor
+@Data
+public class LocationPointDto {
+
+    @JsonProperty
+    private Long id;
+
+    @JsonProperty
+    private Double latitude;
+
+    @JsonProperty
+    private Double longitude;
+
+    @JsonIgnore
+    private Long version;
+
+    @JsonIgnore
+    private OffsetDateTime updatedAt;
+
+}
@@ -0,0 +1,21 @@
+package com.example.demo.reactive.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import java.time.OffsetDateTime;
+
+/**
+ * версия строки для условных запросов (ETag, Last-Modified), выбираются только столбцы version и updated_at
+ * @author ROMAN
+ * @date 2023-03-14
+ * @version 1.0
+ */
+@AllArgsConstructor
+@Data
+public class VersionDto {
+
+    private Long version;
+
+    private OffsetDateTime updatedAt;
+
+}
@@ -0,0 +1,191 @@
+package com.example.demo.reactive.service.impl;
+
+import com.example.demo.reactive.service.KeyLookupService;
+import com.example.demo.reactive.service.dto.AnimalDto;
+import com.example.demo.reactive.service.dto.AnimalTypeDto;
+import com.example.demo.reactive.service.dto.LocationPointDto;
+import com.example.demo.reactive.service.dto.VersionDto;
+import io.r2dbc.spi.Row;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * реализация чтения по id через R2DBC DatabaseClient
+ * запросы выбирают те же столбцы, что и проекции основного приложения (AnimalView, LocationPointView, VersionView),
+ * строки id типов и посещенных точек разбираются в long[] так же, как IdArrays.parse
+ * @author ROMAN
+ * @date 2023-03-14
+ * @version 1.0
+ */
+@Service
+public class KeyLookupServiceImpl implements KeyLookupService {
+
+    private static final String ANIMAL_SELECT = "select id, animal_types, weight, height, length, gender, life_status, chipping_datetime, " +
+            "chipper_id, chipping_location_id, visited_locations, death_datetime, version, updated_at from animal where id = :id";
+
+    private static final String LOCATION_POINT_SELECT = "select id, latitude, longitude, version, updated_at from location_point where id = :id";
+
+    private static final String ANIMAL_TYPE_SELECT = "select id, type, version, updated_at from animal_type where id = :id";
+
+    private static final long[] EMPTY = new long[0];
+
+    private final DatabaseClient databaseClient;
+
+    @Autowired
+    public KeyLookupServiceImpl(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Mono<AnimalDto> findAnimalById(Long id)
+    {
+        return databaseClient.sql(ANIMAL_SELECT).bind("id", id).map((row, metadata) -> toAnimalDto(row)).one();
+    }
+
+    @Override
+    public Mono<VersionDto> findAnimalVersionById(Long id)
+    {
+        return findVersion("animal", id);
+    }
+
+    @Override
+    public Mono<LocationPointDto> findLocationPointById(Long id)
+    {
+        return databaseClient.sql(LOCATION_POINT_SELECT).bind("id", id).map((row, metadata) -> {
+            LocationPointDto dto = new LocationPointDto();
+            dto.setId(row.get("id", Long.class));
+            dto.setLatitude(row.get("latitude", Double.class));
+            dto.setLongitude(row.get("longitude", Double.class));
+            dto.setVersion(row.get("version", Long.class));
+            dto.setUpdatedAt(toUtc(row.get("updated_at", OffsetDateTime.class)));
+            return dto;
+        }).one();
+    }
+
+    @Override
+    public Mono<VersionDto> findLocationPointVersionById(Long id)
+    {
+        return findVersion("location_point", id);
+    }
+
+    @Override
+    public Mono<AnimalTypeDto> findAnimalTypeById(Long id)
+    {
+        return databaseClient.sql(ANIMAL_TYPE_SELECT).bind("id", id).map((row, metadata) -> {
+            AnimalTypeDto dto = new AnimalTypeDto();
+            dto.setId(row.get("id", Long.class));
+            dto.setType(row.get("type", String.class));
+            dto.setVersion(row.get("version", Long.class));
+            dto.setUpdatedAt(toUtc(row.get("updated_at", OffsetDateTime.class)));
+            return dto;
+        }).one();
+    }
+
+    @Override
+    public Mono<VersionDto> findAnimalTypeVersionById(Long id)
+    {
+        return findVersion("animal_type", id);
+    }
+
+    /**
+     * версия строки таблицы, имя таблицы - константа вызывающего метода
+     * @param table
+     * @param id
+     * @return VersionDto or empty
+     */
+    private Mono<VersionDto> findVersion(String table, Long id)
+    {
+        return databaseClient.sql("select version, updated_at from " + table + " where id = :id").bind("id", id)
+                .map((row, metadata) -> new VersionDto(row.get("version", Long.class), toUtc(row.get("updated_at", OffsetDateTime.class))))
+                .one();
+    }
+
+    private static AnimalDto toAnimalDto(Row row)
+    {
+        AnimalDto dto = new AnimalDto();
+        dto.setId(row.get("id", Long.class));
+        dto.setAnimalTypes(parse(row.get("animal_types", String.class)));
+        dto.setWeight(row.get("weight", Float.class));
+        dto.setHeight(row.get("height", Float.class));
+        dto.setLength(row.get("length", Float.class));
+        dto.setGender(row.get("gender", String.class));
+        dto.setLifeStatus(row.get("life_status", String.class));
+        dto.setChippingDateTime(toUtc(row.get("chipping_datetime", OffsetDateTime.class)));
+        dto.setChipperId(row.get("chipper_id", Integer.class));
+        dto.setChippingLocationId(row.get("chipping_location_id", Long.class));
+        dto.setVisitedLocations(parse(row.get("visited_locations", String.class)));
+        dto.setDeathDateTime(toUtc(row.get("death_datetime", OffsetDateTime.class)));
+        dto.setVersion(row.get("version", Long.class));
+        dto.setUpdatedAt(toUtc(row.get("updated_at", OffsetDateTime.class)));
+        return dto;
+    }
+
+    /**
+     * разбор строки id через запятую без исключений и упаковки, копия IdArrays.parse основного приложения:
+     * пустые, отрицательные, переполненные и нечисловые элементы пропускаются
+     * @param value
+     * @return long[]
+     */
+    static long[] parse(String value)
+    {
+        if (value==null || value.isEmpty())
+        {
+            return EMPTY;
+        }
+        int count = 1;
+        for (int i=0; i<value.length(); i++)
+        {
+            if (value.charAt(i)==',')
+            {
+                count++;
+            }
+        }
+        long[] ids = new long[count];
+        int size = 0;
+        long id = 0;
+        boolean isDigits = false;
+        boolean isValid = true;
+        for (int i=0; i<=value.length(); i++)
+        {
+            char c = i<value.length() ? value.charAt(i) : ',';
+            if (c==',')
+            {
+                if (isDigits && isValid)
+                {
+                    ids[size++] = id;
+                }
+                id = 0;
+                isDigits = false;
+                isValid = true;
+            }
+            else if (c>='0' && c<='9')
+            {
+                int digit = c - '0';
+                if (id > (Long.MAX_VALUE - digit)/10)
+                {
+                    isValid = false;
+                }
+                else
+                {
+                    id = id*10 + digit;
+                    isDigits = true;
+                }
+            }
+            else
+            {
+                isValid = false;
+            }
+        }
+        return size==ids.length ? ids : Arrays.copyOf(ids, size);
+    }
+
+    private static OffsetDateTime toUtc(OffsetDateTime value)
+    {
+        return value!=null ? value.withOffsetSameInstant(ZoneOffset.UTC) : null;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.demo.reactive.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * загрузка аккаунта по email для HTTP Basic, те же правила, что у UserDetailsServiceImpl основного приложения:
+ * пароль - bcrypt хеш из таблицы account, каждому аккаунту выдается роль ROLE_USER
+ * @author ROMAN
+ * @date 2023-03-14
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class ReactiveUserDetailsServiceImpl implements ReactiveUserDetailsService {
+
+    private static final String ACCOUNT_SELECT = "select email, password from account where email = :email";
+
+    private final DatabaseClient databaseClient;
+
+    @Autowired
+    public ReactiveUserDetailsServiceImpl(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Mono<UserDetails> findByUsername(String username)
+    {
+        log.info("load user by username");
+        if (username==null || username.isEmpty())
+        {
+            log.warn("username parameter is empty");
+            return Mono.empty();
+        }
+        return databaseClient.sql(ACCOUNT_SELECT).bind("email", username)
+                .map((row, metadata) -> User.withUsername(row.get("email", String.class))
+                        .password(row.get("password", String.class))
+                        .authorities("ROLE_USER")
+                        .build())
+                .one();
+    }
+}
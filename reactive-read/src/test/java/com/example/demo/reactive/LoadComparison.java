@@ -0,0 +1,269 @@
+package com.example.demo.reactive;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * сравнение servlet приложения (8080) и реактивного модуля (8081) под нагрузкой на GET по id
+ * для каждого пути и приложения держится заданное число одновременных запросов (замкнутый цикл),
+ * после прогрева измеряются пропускная способность, перцентили задержки и число потоков jvm (/actuator/metrics/jvm.threads.live)
+ *
+ * оба приложения запускаются с session.cookie.enabled=true и одним session.cookie.secret:
+ * cookie SESSION_TOKEN выдается servlet приложением на POST /login и принимается обоими,
+ * поэтому в измерение не попадает bcrypt проверка HTTP Basic на каждый запрос
+ *
+ * запуск: gradle :reactive-read:loadComparison -Pargs="--email=user@mail.com --password=secret --concurrency=512 --seconds=30"
+ * параметры (по умолчанию): --servlet=http://localhost:8080 --reactive=http://localhost:8081 --concurrency=256
+ * --seconds=30 --warmup-seconds=10 --animal=1 --point=1 --type=1 --conditional=false (true - запросы с If-None-Match, ответы 304)
+ * @author ROMAN
+ * @date 2023-03-14
+ * @version 1.0
+ */
+public class LoadComparison {
+
+	private static final Pattern VALUE = Pattern.compile("\"value\"\\s*:\\s*([0-9.Ee+-]+)");
+
+	private static final Pattern ETAG = Pattern.compile("\"[0-9]+\"");
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = new HashMap();
+		for (String arg: args)
+		{
+			if (arg.startsWith("--") && arg.contains("="))
+			{
+				options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+			}
+		}
+		String servlet = options.getOrDefault("servlet", "http://localhost:8080");
+		String reactive = options.getOrDefault("reactive", "http://localhost:8081");
+		int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "256"));
+		Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("seconds", "30")));
+		Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup-seconds", "10")));
+		boolean isConditional = Boolean.parseBoolean(options.getOrDefault("conditional", "false"));
+		List<String> paths = Arrays.asList(
+				"/animals/" + options.getOrDefault("animal", "1"),
+				"/locations/" + options.getOrDefault("point", "1"),
+				"/animals/types/" + options.getOrDefault("type", "1"));
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+		HttpClient client = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(Duration.ofSeconds(5))
+				.executor(executor)
+				.build();
+		try
+		{
+			String cookie = login(client, servlet, options.get("email"), options.get("password"));
+			System.out.printf("%-9s %-18s %10s %10s %9s %9s %9s %9s %8s %8s%n",
+					"app", "path", "requests", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "failed", "threads");
+			for (String path: paths)
+			{
+				for (String base: Arrays.asList(servlet, reactive))
+				{
+					String app = base.equals(servlet) ? "servlet" : "reactive";
+					URI uri = URI.create(base + path);
+					String etag = isConditional ? etagOf(client, uri, cookie) : null;
+					run(client, uri, cookie, etag, concurrency, warmup);
+					Result result = run(client, uri, cookie, etag, concurrency, duration);
+					String threads = metric(client, base, cookie, "jvm.threads.live");
+					System.out.printf("%-9s %-18s %10d %10.0f %9.2f %9.2f %9.2f %9.2f %8d %8s%n",
+							app, path, result.count, result.count/(double) duration.toSeconds(),
+							result.percentile(0.50), result.percentile(0.95), result.percentile(0.99), result.percentile(1.0),
+							result.failed, threads);
+				}
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * вход через servlet приложение, возвращает cookie SESSION_TOKEN
+	 * @param client
+	 * @param servlet
+	 * @param email
+	 * @param password
+	 * @return cookie header value
+	 */
+	private static String login(HttpClient client, String servlet, String email, String password) throws Exception {
+		if (email==null || password==null)
+		{
+			throw new IllegalArgumentException("--email and --password are mandatory");
+		}
+		String credentials = Base64.getEncoder().encodeToString((email + ":" + password).getBytes(StandardCharsets.UTF_8));
+		HttpRequest request = HttpRequest.newBuilder(URI.create(servlet + "/login"))
+				.header("Authorization", "Basic " + credentials)
+				.POST(HttpRequest.BodyPublishers.noBody())
+				.build();
+		HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+		for (String header: response.headers().allValues("Set-Cookie"))
+		{
+			if (header.startsWith("SESSION_TOKEN="))
+			{
+				return header.substring(0, header.indexOf(';')>0 ? header.indexOf(';') : header.length());
+			}
+		}
+		throw new IllegalStateException("login returned " + response.statusCode() + " without SESSION_TOKEN, start both applications with session.cookie.enabled=true");
+	}
+
+	private static String etagOf(HttpClient client, URI uri, String cookie) throws Exception {
+		HttpResponse<Void> response = client.send(request(uri, cookie, null), HttpResponse.BodyHandlers.discarding());
+		String etag = response.headers().firstValue("ETag").orElse(null);
+		if (etag==null || !ETAG.matcher(etag).matches())
+		{
+			throw new IllegalStateException(uri + " returned " + response.statusCode() + " without a strong ETag");
+		}
+		return etag;
+	}
+
+	private static String metric(HttpClient client, String base, String cookie, String name) {
+		try
+		{
+			HttpResponse<String> response = client.send(request(URI.create(base + "/actuator/metrics/" + name), cookie, null),
+					HttpResponse.BodyHandlers.ofString());
+			Matcher matcher = VALUE.matcher(response.body());
+			return matcher.find() ? String.valueOf((long) Double.parseDouble(matcher.group(1))) : "-";
+		}
+		catch (Exception ex)
+		{
+			return "-";
+		}
+	}
+
+	private static HttpRequest request(URI uri, String cookie, String etag) {
+		HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+				.timeout(Duration.ofSeconds(10))
+				.header("Cookie", cookie)
+				.GET();
+		if (etag!=null)
+		{
+			builder.header("If-None-Match", etag);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * замкнутый цикл: каждый из concurrency исполнителей отправляет следующий запрос после ответа на предыдущий
+	 */
+	private static Result run(HttpClient client, URI uri, String cookie, String etag, int concurrency, Duration duration) throws InterruptedException {
+		HttpRequest request = request(uri, cookie, etag);
+		int expected = etag!=null ? 304 : 200;
+		long end = System.nanoTime() + duration.toNanos();
+		CountDownLatch done = new CountDownLatch(concurrency);
+		List<Worker> workers = new ArrayList();
+		for (int i=0; i<concurrency; i++)
+		{
+			Worker worker = new Worker(client, request, expected, end, done);
+			workers.add(worker);
+			worker.next();
+		}
+		if (!done.await(duration.toSeconds() + 30, TimeUnit.SECONDS))
+		{
+			throw new IllegalStateException("requests to " + uri + " did not finish");
+		}
+		Result result = new Result();
+		for (Worker worker: workers)
+		{
+			result.add(worker);
+		}
+		Arrays.sort(result.latencies);
+		return result;
+	}
+
+	private static class Worker {
+
+		private final HttpClient client;
+
+		private final HttpRequest request;
+
+		private final int expected;
+
+		private final long end;
+
+		private final CountDownLatch done;
+
+		private long[] latencies = new long[1024];
+
+		private int count;
+
+		private int failed;
+
+		private Worker(HttpClient client, HttpRequest request, int expected, long end, CountDownLatch done) {
+			this.client = client;
+			this.request = request;
+			this.expected = expected;
+			this.end = end;
+			this.done = done;
+		}
+
+		private void next() {
+			long start = System.nanoTime();
+			if (start>=end)
+			{
+				done.countDown();
+				return;
+			}
+			client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).whenComplete((response, ex) -> {
+				long latency = System.nanoTime() - start;
+				synchronized (this)
+				{
+					if (ex!=null || response.statusCode()!=expected)
+					{
+						failed++;
+					}
+					else
+					{
+						if (count==latencies.length)
+						{
+							latencies = Arrays.copyOf(latencies, count*2);
+						}
+						latencies[count++] = latency;
+					}
+				}
+				next();
+			});
+		}
+	}
+
+	private static class Result {
+
+		private long[] latencies = new long[0];
+
+		private int count;
+
+		private int failed;
+
+		private void add(Worker worker) {
+			synchronized (worker)
+			{
+				latencies = Arrays.copyOf(latencies, count + worker.count);
+				System.arraycopy(worker.latencies, 0, latencies, count, worker.count);
+				count += worker.count;
+				failed += worker.failed;
+			}
+		}
+
+		private double percentile(double rank) {
+			if (count==0)
+			{
+				return 0;
+			}
+			int index = (int) Math.min(count - 1, Math.ceil(rank*count) - 1);
+			return latencies[Math.max(0, index)]/1_000_000.0;
+		}
+	}
+
+}
@@ -0,0 +1,105 @@
+package com.example.demo.reactive.controller;
+
+import com.example.demo.reactive.service.KeyLookupService;
+import com.example.demo.reactive.service.dto.AnimalDto;
+import com.example.demo.reactive.service.dto.VersionDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * коды ответа и условные запросы реактивного контроллера (без фильтров безопасности)
+ * @author ROMAN
+ * @date 2023-03-14
+ * @version 1.0
+ */
+class KeyLookupRestControllerTests {
+
+	private static final OffsetDateTime UPDATED_AT = OffsetDateTime.of(2023, 3, 14, 10, 0, 0, 0, ZoneOffset.UTC);
+
+	private KeyLookupService keyLookupService;
+
+	private WebTestClient client;
+
+	@BeforeEach
+	void setUp() {
+		keyLookupService = mock(KeyLookupService.class);
+		client = WebTestClient.bindToController(new KeyLookupRestController(keyLookupService)).build();
+	}
+
+	@Test
+	void animalIsReturnedWithEntityTag() {
+		when(keyLookupService.findAnimalVersionById(5L)).thenReturn(Mono.just(new VersionDto(3L, UPDATED_AT)));
+		when(keyLookupService.findAnimalById(5L)).thenReturn(Mono.just(animal(5L, 3L)));
+
+		client.get().uri("/animals/5").exchange()
+				.expectStatus().isOk()
+				.expectHeader().valueEquals("ETag", "\"3\"")
+				.expectHeader().lastModified(UPDATED_AT.toInstant().toEpochMilli())
+				.expectBody()
+				.jsonPath("$.id").isEqualTo(5)
+				.jsonPath("$.animalTypes[0]").isEqualTo(1)
+				.jsonPath("$.visitedLocations").isEmpty()
+				.jsonPath("$.version").doesNotExist();
+	}
+
+	@Test
+	void matchingEntityTagIsAnsweredFromTheVersionQuery() {
+		when(keyLookupService.findAnimalVersionById(5L)).thenReturn(Mono.just(new VersionDto(3L, UPDATED_AT)));
+
+		client.get().uri("/animals/5").header("If-None-Match", "\"3\"").exchange()
+				.expectStatus().isNotModified()
+				.expectBody().isEmpty();
+		verify(keyLookupService, never()).findAnimalById(anyLong());
+	}
+
+	@Test
+	void staleEntityTagLoadsTheRow() {
+		when(keyLookupService.findAnimalVersionById(5L)).thenReturn(Mono.just(new VersionDto(4L, UPDATED_AT)));
+		when(keyLookupService.findAnimalById(5L)).thenReturn(Mono.just(animal(5L, 4L)));
+
+		client.get().uri("/animals/5").header("If-None-Match", "\"3\"").exchange()
+				.expectStatus().isOk()
+				.expectHeader().valueEquals("ETag", "\"4\"");
+	}
+
+	@Test
+	void missingRowIsNotFound() {
+		when(keyLookupService.findLocationPointVersionById(7L)).thenReturn(Mono.empty());
+
+		client.get().uri("/locations/7").exchange().expectStatus().isNotFound();
+		verify(keyLookupService, never()).findLocationPointById(anyLong());
+	}
+
+	@Test
+	void rowDeletedAfterTheVersionQueryIsNotFound() {
+		when(keyLookupService.findAnimalTypeVersionById(2L)).thenReturn(Mono.just(new VersionDto(1L, UPDATED_AT)));
+		when(keyLookupService.findAnimalTypeById(2L)).thenReturn(Mono.empty());
+
+		client.get().uri("/animals/types/2").exchange().expectStatus().isNotFound();
+	}
+
+	@Test
+	void nonPositiveIdIsBadRequest() {
+		client.get().uri("/animals/0").exchange().expectStatus().isBadRequest();
+		client.get().uri("/locations/-1").exchange().expectStatus().isBadRequest();
+		verifyNoInteractions(keyLookupService);
+	}
+
+	private static AnimalDto animal(Long id, Long version) {
+		AnimalDto dto = new AnimalDto();
+		dto.setId(id);
+		dto.setAnimalTypes(new long[]{1});
+		dto.setVisitedLocations(new long[0]);
+		dto.setVersion(version);
+		dto.setUpdatedAt(UPDATED_AT);
+		return dto;
+	}
+
+}
@@ -0,0 +1,180 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.config.IdArrays;
+import com.example.demo.model.Gender;
+import com.example.demo.model.LifeStatus;
+import com.example.demo.repository.projection.AnimalView;
+import com.example.demo.service.dto.AnimalDto;
+import com.example.demo.service.mapper.AnimalMapper;
+import com.example.demo.service.mapper.AnimalMapperImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * id типов и посещенных точек животного: прежнее представление (Set<Long>/List<Long> через split и Long.parseLong)
+ * против текущего (long[] через IdArrays и IdArrayDeserializer)
+ * toDto* - преобразование проекции AnimalView в dto, readJson* - чтение тела запроса с теми же id;
+ * сравниваются gc.alloc.rate.norm (байт на операцию) и время
+ * запуск: gradle jmh
+ * @author ROMAN
+ * @date 2023-03-14
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AnimalIdsBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int visits;
+
+    private AnimalView view;
+
+    private AnimalMapper animalMapper;
+
+    private ObjectMapper objectMapper;
+
+    private String json;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        long[] visitIds = new long[visits];
+        for (int i=0; i<visits; i++)
+        {
+            visitIds[i] = 100_000L + i;
+        }
+        long[] typeIds = {1, 2, 3};
+        view = new View(IdArrays.join(typeIds), IdArrays.join(visitIds));
+        animalMapper = new AnimalMapperImpl();
+        objectMapper = new ObjectMapper().findAndRegisterModules();
+        Map<String, long[]> body = new HashMap();
+        body.put("animalTypes", typeIds);
+        body.put("visitedLocations", visitIds);
+        json = objectMapper.writeValueAsString(body);
+    }
+
+    @Benchmark
+    public BoxedAnimalDto toDtoBoxed()
+    {
+        BoxedAnimalDto dto = new BoxedAnimalDto();
+        dto.id = view.getId();
+        dto.animalTypes = new HashSet(parseBoxed(view.getAnimalTypeIds()));
+        dto.visitedLocations = parseBoxed(view.getVisitedLocationIds());
+        return dto;
+    }
+
+    @Benchmark
+    public AnimalDto toDtoIdArrays()
+    {
+        return animalMapper.toDto(view);
+    }
+
+    @Benchmark
+    public BoxedAnimalDto readJsonBoxed() throws Exception
+    {
+        return objectMapper.readValue(json, BoxedAnimalDto.class);
+    }
+
+    @Benchmark
+    public AnimalDto readJsonIdArrays() throws Exception
+    {
+        return objectMapper.readValue(json, AnimalDto.class);
+    }
+
+    /**
+     * разбор id в том виде, в каком он был в AnimalMapper до перехода на long[]
+     */
+    private static List<Long> parseBoxed(String ids)
+    {
+        List<Long> list = new ArrayList();
+        for (String item: ids.split(","))
+        {
+            if (!item.isEmpty())
+            {
+                try
+                {
+                    list.add(Long.parseLong(item));
+                }
+                catch (NumberFormatException ex)
+                {
+                    // пропуск некорректного id
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * прежнее представление id в AnimalDto
+     */
+    public static class BoxedAnimalDto {
+
+        public Long id;
+
+        public Set<Long> animalTypes;
+
+        public List<Long> visitedLocations;
+    }
+
+    private static class View implements AnimalView {
+
+        private static final OffsetDateTime CHIPPED = OffsetDateTime.of(2023, 3, 14, 10, 0, 0, 0, ZoneOffset.UTC);
+
+        private final String animalTypeIds;
+
+        private final String visitedLocationIds;
+
+        View(String animalTypeIds, String visitedLocationIds)
+        {
+            this.animalTypeIds = animalTypeIds;
+            this.visitedLocationIds = visitedLocationIds;
+        }
+
+        @Override
+        public Long getId() { return 1L; }
+
+        @Override
+        public String getAnimalTypeIds() { return animalTypeIds; }
+
+        @Override
+        public Float getWeight() { return 10.0f; }
+
+        @Override
+        public Float getHeight() { return 1.0f; }
+
+        @Override
+        public Float getLength() { return 1.0f; }
+
+        @Override
+        public Gender getGender() { return Gender.MALE; }
+
+        @Override
+        public LifeStatus getLifeStatus() { return LifeStatus.ALIVE; }
+
+        @Override
+        public OffsetDateTime getChippingDateTime() { return CHIPPED; }
+
+        @Override
+        public Integer getChipperId() { return 1; }
+
+        @Override
+        public Long getChippingLocationId() { return 1L; }
+
+        @Override
+        public String getVisitedLocationIds() { return visitedLocationIds; }
+
+        @Override
+        public OffsetDateTime getDeathDatetime() { return null; }
+
+        @Override
+        public Long getVersion() { return 1L; }
+
+        @Override
+        public OffsetDateTime getUpdatedAt() { return CHIPPED; }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.demo.config;
+
+/**
+ * шина инвалидации кэша второго уровня между экземплярами приложения
+ * локальный кэш Hibernate обновляет сам, шина сообщает об изменении остальным экземплярам
+ * @author ROMAN
+ * @date 2023-03-06
+ * @version 1.0
+ */
+public interface CacheInvalidationBus {
+
+    /**
+     * сообщает остальным экземплярам об изменении сущности
+     * в активной транзакции сообщение доставляется только после ее фиксации
+     * @param entityClass
+     * @param id
+     */
+    void publish(Class<?> entityClass, Object id);
+}
@@ -0,0 +1,181 @@
+package com.example.demo.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.stereotype.Component;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * хранение контекста безопасности в зашифрованной и подписанной cookie (AES-GCM) вместо сессии
+ * cookie содержит имя пользователя, роли и срок действия, поэтому запросы не пишут в базу
+ * и любой экземпляр приложения с тем же секретом принимает cookie
+ * cookie перевыпускается, когда прошла половина срока действия
+ * на сервере выданные cookie не хранятся, поэтому выход (POST /logout) только просит браузер удалить cookie:
+ * скопированная до выхода cookie остается действительной до истечения session.cookie.ttl-seconds с момента выдачи
+ * и не может быть отозвана раньше, кроме как сменой session.cookie.secret (что завершает сеансы всех пользователей)
+ * @author ROMAN
+ * @date 2023-03-07
+ * @version 1.0
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "session.cookie.enabled", havingValue = "true")
+public class CookieSecurityContextRepository implements SecurityContextRepository {
+
+    public static final String COOKIE_NAME = "SESSION_TOKEN";
+
+    private static final String ISSUED_ATTRIBUTE = CookieSecurityContextRepository.class.getName()+".ISSUED";
+
+    private static final int IV_LENGTH = 12;
+
+    private static final int TAG_LENGTH = 128;
+
+    private final SecretKeySpec key;
+
+    private final long ttlSeconds;
+
+    private final boolean secure;
+
+    private final Clock clock;
+
+    private final SecureRandom random = new SecureRandom();
+
+    @Autowired
+    public CookieSecurityContextRepository(@Value("${session.cookie.secret}") String secret,
+                                           @Value("${session.cookie.ttl-seconds:1800}") long ttlSeconds,
+                                           @Value("${session.cookie.secure:true}") boolean secure) throws GeneralSecurityException {
+        this(secret, ttlSeconds, secure, Clock.systemUTC());
+    }
+
+    CookieSecurityContextRepository(String secret, long ttlSeconds, boolean secure, Clock clock) throws GeneralSecurityException {
+        this.key = new SecretKeySpec(MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.UTF_8)), "AES");
+        this.ttlSeconds = ttlSeconds;
+        this.secure = secure;
+        this.clock = clock;
+    }
+
+    @Override
+    public SecurityContext loadContext(HttpRequestResponseHolder requestResponseHolder)
+    {
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        HttpServletRequest request = requestResponseHolder.getRequest();
+        String token = readCookie(request);
+        if (token!=null)
+        {
+            try
+            {
+                String[] parts = decrypt(token).split("\n", 3);
+                long issued = Long.parseLong(parts[0]);
+                long now = clock.instant().getEpochSecond();
+                if (issued + ttlSeconds > now)
+                {
+                    List<GrantedAuthority> authorities = AuthorityUtils.commaSeparatedStringToAuthorityList(parts[1]);
+                    context.setAuthentication(new UsernamePasswordAuthenticationToken(parts[2], null, authorities));
+                    request.setAttribute(ISSUED_ATTRIBUTE, issued);
+                }
+            }
+            catch (GeneralSecurityException | RuntimeException ex)
+            {
+                log.warn("session cookie rejected: {}", ex.getMessage());
+            }
+        }
+        return context;
+    }
+
+    @Override
+    public void saveContext(SecurityContext context, HttpServletRequest request, HttpServletResponse response)
+    {
+        Authentication authentication = context.getAuthentication();
+        if (authentication==null || authentication instanceof AnonymousAuthenticationToken || !authentication.isAuthenticated())
+        {
+            return;
+        }
+        long now = clock.instant().getEpochSecond();
+        Long issued = (Long) request.getAttribute(ISSUED_ATTRIBUTE);
+        if (issued!=null && issued + ttlSeconds/2 > now)
+        {
+            return;
+        }
+        try
+        {
+            String payload = now+"\n"+String.join(",", AuthorityUtils.authorityListToSet(authentication.getAuthorities()))+"\n"+authentication.getName();
+            Cookie cookie = new Cookie(COOKIE_NAME, encrypt(payload));
+            cookie.setHttpOnly(true);
+            cookie.setSecure(secure);
+            cookie.setPath("/");
+            cookie.setMaxAge((int) ttlSeconds);
+            response.addCookie(cookie);
+        }
+        catch (GeneralSecurityException ex)
+        {
+            log.error("session cookie was not issued: {}", ex.getMessage());
+        }
+    }
+
+    @Override
+    public boolean containsContext(HttpServletRequest request)
+    {
+        return readCookie(request)!=null;
+    }
+
+    private static String readCookie(HttpServletRequest request)
+    {
+        if (request.getCookies()!=null)
+        {
+            for (Cookie cookie: request.getCookies())
+            {
+                if (COOKIE_NAME.equals(cookie.getName()))
+                {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    private String encrypt(String payload) throws GeneralSecurityException
+    {
+        byte[] iv = new byte[IV_LENGTH];
+        random.nextBytes(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, iv));
+        byte[] encrypted = cipher.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(ByteBuffer.allocate(iv.length + encrypted.length).put(iv).put(encrypted).array());
+    }
+
+    private String decrypt(String token) throws GeneralSecurityException
+    {
+        byte[] data = Base64.getUrlDecoder().decode(token);
+        if (data.length<=IV_LENGTH)
+        {
+            throw new GeneralSecurityException("token is too short");
+        }
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, data, 0, IV_LENGTH));
+        return new String(cipher.doFinal(data, IV_LENGTH, data.length - IV_LENGTH), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.demo.config;
+
+import java.text.ParsePosition;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+
+/**
+ * разбор дат в формате ISO-8601 для параметров поиска
+ * форматтеры неизменяемые и потокобезопасные, поэтому создаются один раз;
+ * некорректный ввод отсекается через parseUnresolved без создания исключений
+ * @author ROMAN
+ * @date 2023-03-01
+ * @version 1.0
+ */
+public final class DateTimeParser {
+
+    public static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+
+    public static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE;
+
+    private DateTimeParser() {
+    }
+
+    /**
+     * разбор даты со смещением (2023-02-17T10:15:30+03:00) или даты без времени (2023-02-17, начало суток UTC)
+     * @param value
+     * @return OffsetDateTime or empty if value is null or invalid
+     */
+    public static Optional<OffsetDateTime> parse(String value)
+    {
+        if (value==null || value.isEmpty())
+        {
+            return Optional.empty();
+        }
+        if (isParsable(DATE_TIME_FORMATTER, value))
+        {
+            try
+            {
+                return Optional.of(OffsetDateTime.parse(value, DATE_TIME_FORMATTER));
+            }
+            catch (DateTimeParseException ex)
+            {
+                return Optional.empty();
+            }
+        }
+        if (isParsable(DATE_FORMATTER, value))
+        {
+            try
+            {
+                return Optional.of(LocalDate.parse(value, DATE_FORMATTER).atStartOfDay().atOffset(ZoneOffset.UTC));
+            }
+            catch (DateTimeParseException ex)
+            {
+                return Optional.empty();
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * текущее время в UTC
+     * @return OffsetDateTime
+     */
+    public static OffsetDateTime now()
+    {
+        return OffsetDateTime.now(ZoneOffset.UTC);
+    }
+
+    private static boolean isParsable(DateTimeFormatter formatter, String value)
+    {
+        ParsePosition position = new ParsePosition(0);
+        return formatter.parseUnresolved(value, position)!=null
+                && position.getErrorIndex()<0
+                && position.getIndex()==value.length();
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.demo.config;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * чтение JSON массива id в long[] без упаковки в Long
+ * в отличие от стандартного десериализатора long[] принимает только целые числа:
+ * строки, дробные числа, null и boolean внутри массива отклоняются (400), а не приводятся к long
+ * @author ROMAN
+ * @date 2023-03-14
+ * @version 1.0
+ */
+public class IdArrayDeserializer extends StdDeserializer<long[]> {
+
+    public IdArrayDeserializer() {
+        super(long[].class);
+    }
+
+    @Override
+    public long[] deserialize(JsonParser parser, DeserializationContext context) throws IOException
+    {
+        if (!parser.isExpectedStartArrayToken())
+        {
+            return (long[]) context.handleUnexpectedToken(long[].class, parser);
+        }
+        long[] ids = new long[16];
+        int size = 0;
+        JsonToken token;
+        while ((token = parser.nextToken())!=JsonToken.END_ARRAY)
+        {
+            if (token!=JsonToken.VALUE_NUMBER_INT)
+            {
+                return (long[]) context.handleUnexpectedToken(long[].class, token, parser, "id must be an integer, found %s", token);
+            }
+            if (size==ids.length)
+            {
+                ids = Arrays.copyOf(ids, size*2);
+            }
+            ids[size++] = parser.getLongValue();
+        }
+        return size==ids.length ? ids : Arrays.copyOf(ids, size);
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.demo.config;
+
+import lombok.extern.slf4j.Slf4j;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * списки id в виде long[] для столбцов animal_types и visited_locations (id через запятую)
+ * разбор идет по символам строки без split и Long.parseLong, поэтому не создает
+ * промежуточных строк и упакованных Long; некорректные и пустые элементы пропускаются с предупреждением в журнале
+ * @author ROMAN
+ * @date 2023-03-10
+ * @version 1.0
+ */
+@Slf4j
+public final class IdArrays {
+
+    public static final long[] EMPTY = new long[0];
+
+    private IdArrays() {
+    }
+
+    /**
+     * разбор строки id через запятую
+     * @param value
+     * @return array of ids in input order, empty array if value is null or empty
+     */
+    public static long[] parse(String value)
+    {
+        if (value==null || value.isEmpty())
+        {
+            return EMPTY;
+        }
+        int count = 1;
+        for (int i=0; i<value.length(); i++)
+        {
+            if (value.charAt(i)==',')
+            {
+                count++;
+            }
+        }
+        long[] ids = new long[count];
+        int size = 0;
+        int dropped = 0;
+        long id = 0;
+        boolean isDigits = false;
+        boolean isValid = true;
+        for (int i=0; i<=value.length(); i++)
+        {
+            char c = i<value.length() ? value.charAt(i) : ',';
+            if (c==',')
+            {
+                if (isDigits && isValid)
+                {
+                    ids[size++] = id;
+                }
+                else
+                {
+                    dropped++;
+                }
+                id = 0;
+                isDigits = false;
+                isValid = true;
+            }
+            else if (c>='0' && c<='9')
+            {
+                int digit = c - '0';
+                if (id > (Long.MAX_VALUE - digit)/10)
+                {
+                    isValid = false;
+                }
+                else
+                {
+                    id = id*10 + digit;
+                    isDigits = true;
+                }
+            }
+            else
+            {
+                isValid = false;
+            }
+        }
+        if (dropped>0)
+        {
+            log.warn("{} empty or invalid ids were dropped from id list '{}'", dropped, value);
+        }
+        return size==ids.length ? ids : Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * запись id через запятую
+     * @param ids
+     * @return string, empty if ids is null or empty
+     */
+    public static String join(long[] ids)
+    {
+        if (ids==null || ids.length==0)
+        {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder(ids.length*8);
+        for (int i=0; i<ids.length; i++)
+        {
+            if (i>0)
+            {
+                builder.append(',');
+            }
+            builder.append(ids[i]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * запись id элементов коллекции через запятую
+     * @param items
+     * @param id
+     * @return string, empty if items is null or empty
+     */
+    public static <T> String join(Collection<T> items, ToLongFunction<T> id)
+    {
+        if (items==null || items.isEmpty())
+        {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder(items.size()*8);
+        for (T item: items)
+        {
+            if (builder.length()>0)
+            {
+                builder.append(',');
+            }
+            builder.append(id.applyAsLong(item));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * id элементов коллекции
+     * @param items
+     * @param id
+     * @return array of ids in iteration order
+     */
+    public static <T> long[] of(Collection<T> items, ToLongFunction<T> id)
+    {
+        long[] ids = new long[items.size()];
+        int i = 0;
+        for (T item: items)
+        {
+            ids[i++] = id.applyAsLong(item);
+        }
+        return ids;
+    }
+
+    /**
+     * упорядоченные id без повторов (семантика множества для типов животного)
+     * @param ids
+     * @return new sorted array without duplicates
+     */
+    public static long[] distinct(long[] ids)
+    {
+        if (ids.length<2)
+        {
+            return ids.clone();
+        }
+        long[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        int size = 1;
+        for (int i=1; i<sorted.length; i++)
+        {
+            if (sorted[i]!=sorted[size-1])
+            {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return size==sorted.length ? sorted : Arrays.copyOf(sorted, size);
+    }
+
+    /**
+     * @param ids
+     * @param id
+     * @return true if ids contains id
+     */
+    public static boolean contains(long[] ids, long id)
+    {
+        for (long item: ids)
+        {
+            if (item==id)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * замена id: все вхождения from удаляются, to добавляется, если его еще нет
+     * @param ids
+     * @param from удаляемый id или null
+     * @param to добавляемый id или null
+     * @return new sorted array without duplicates
+     */
+    public static long[] replace(long[] ids, Long from, Long to)
+    {
+        long[] result = new long[ids.length + 1];
+        int size = 0;
+        for (long id: ids)
+        {
+            if (from==null || id!=from)
+            {
+                result[size++] = id;
+            }
+        }
+        if (to!=null)
+        {
+            result[size++] = to;
+        }
+        return distinct(Arrays.copyOf(result, size));
+    }
+
+    /**
+     * упакованные id для методов репозиториев (findAllById)
+     * @param ids
+     * @return list of ids
+     */
+    public static List<Long> boxed(long[] ids)
+    {
+        List<Long> list = new ArrayList(ids.length);
+        for (long id: ids)
+        {
+            list.add(id);
+        }
+        return list;
+    }
+}
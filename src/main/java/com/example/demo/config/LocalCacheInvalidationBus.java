@@ -0,0 +1,20 @@
+package com.example.demo.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * шина инвалидации для единственного экземпляра приложения: сообщения никуда не отправляются
+ * @author ROMAN
+ * @date 2023-03-06
+ * @version 1.0
+ */
+@Component
+@ConditionalOnProperty(name = "cache.invalidation.transport", havingValue = "none")
+public class LocalCacheInvalidationBus implements CacheInvalidationBus {
+
+    @Override
+    public void publish(Class<?> entityClass, Object id)
+    {
+    }
+}
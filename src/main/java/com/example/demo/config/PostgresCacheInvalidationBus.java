@@ -0,0 +1,179 @@
+package com.example.demo.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.metamodel.EntityType;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+/**
+ * шина инвалидации кэша через Postgres LISTEN/NOTIFY
+ * сообщение "instanceId:Entity:id" отправляется через pg_notify в транзакции записи,
+ * поэтому Postgres доставляет его только после фиксации; каждый экземпляр слушает канал
+ * на отдельном соединении вне пула и вытесняет сущность и результаты запросов из своего кэша
+ * после переподключения кэш очищается целиком, так как сообщения могли быть пропущены
+ * @author ROMAN
+ * @date 2023-03-06
+ * @version 1.0
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "cache.invalidation.transport", havingValue = "postgres", matchIfMissing = true)
+public class PostgresCacheInvalidationBus implements CacheInvalidationBus {
+
+    private static final String CHANNEL = "cache_invalidation";
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final DataSourceProperties dataSourceProperties;
+
+    private final int pollMillis;
+
+    private final long reconnectMillis;
+
+    private volatile boolean running;
+
+    private Thread listener;
+
+    @Autowired
+    public PostgresCacheInvalidationBus(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory, DataSourceProperties dataSourceProperties,
+                                        @Value("${cache.invalidation.poll-millis:500}") int pollMillis,
+                                        @Value("${cache.invalidation.reconnect-millis:5000}") long reconnectMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.dataSourceProperties = dataSourceProperties;
+        this.pollMillis = pollMillis;
+        this.reconnectMillis = reconnectMillis;
+    }
+
+    @Override
+    public void publish(Class<?> entityClass, Object id)
+    {
+        String payload = instanceId+":"+entityClass.getSimpleName()+":"+id;
+        try
+        {
+            jdbcTemplate.query("select pg_notify(?, ?)", rs -> null, CHANNEL, payload);
+        }
+        catch (DataAccessException ex)
+        {
+            log.warn("cache invalidation for {} was not published: {}", payload, ex.getMessage());
+        }
+    }
+
+    @PostConstruct
+    public void start()
+    {
+        running = true;
+        listener = new Thread(this::listen, "cache-invalidation-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        running = false;
+        listener.interrupt();
+    }
+
+    private void listen()
+    {
+        while (running)
+        {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword()))
+            {
+                try (Statement statement = connection.createStatement())
+                {
+                    statement.execute("LISTEN "+CHANNEL);
+                }
+                log.info("listening for cache invalidations on channel {}", CHANNEL);
+                evictAll();
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running)
+                {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollMillis);
+                    if (notifications!=null)
+                    {
+                        for (PGNotification notification: notifications)
+                        {
+                            evict(notification.getParameter());
+                        }
+                    }
+                }
+            }
+            catch (SQLException ex)
+            {
+                if (running)
+                {
+                    log.warn("cache invalidation listener disconnected: {}", ex.getMessage());
+                    pause();
+                }
+            }
+        }
+    }
+
+    private void evict(String payload)
+    {
+        String[] parts = payload.split(":", 3);
+        if (parts.length!=3 || parts[0].equals(instanceId))
+        {
+            return;
+        }
+        for (EntityType<?> entity: entityManagerFactory.getMetamodel().getEntities())
+        {
+            if (entity.getName().equals(parts[1]))
+            {
+                try
+                {
+                    Object id = Integer.class.equals(entity.getIdType().getJavaType()) ? Integer.valueOf(parts[2]) : Long.valueOf(parts[2]);
+                    entityManagerFactory.getCache().evict(entity.getJavaType(), id);
+                    entityManagerFactory.unwrap(SessionFactory.class).getCache().evictDefaultQueryRegion();
+                    log.info("evicted {} with id {} on remote change", parts[1], parts[2]);
+                }
+                catch (NumberFormatException ex)
+                {
+                    log.warn("invalid cache invalidation message {}", payload);
+                }
+                return;
+            }
+        }
+    }
+
+    private void evictAll()
+    {
+        entityManagerFactory.getCache().evictAll();
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictDefaultQueryRegion();
+    }
+
+    private void pause()
+    {
+        try
+        {
+            Thread.sleep(reconnectMillis);
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.session.jdbc.config.annotation.SpringSessionDataSource;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * конфигурация источников данных с репликами для чтения
+ * включается свойством datasource.replica.urls (список jdbc url через запятую);
+ * реплики используют те же учетные данные и настройки пула spring.datasource.hikari, что и основная база
+ * сессии Spring Session всегда хранятся в основной базе
+ * @author ROMAN
+ * @date 2023-03-05
+ * @version 1.0
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replica.urls")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @SpringSessionDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties)
+    {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                                             DataSourceProperties properties, Environment environment,
+                                                             @Value("${datasource.replica.urls}") String[] urls,
+                                                             @Value("${datasource.replica.sticky-millis:5000}") long stickyMillis)
+    {
+        List<DataSource> replicas = new ArrayList();
+        for (int i=0; i<urls.length; i++)
+        {
+            HikariDataSource replica = properties.initializeDataSourceBuilder().type(HikariDataSource.class).url(urls[i].trim()).build();
+            Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(replica));
+            replica.setPoolName("replica-"+i);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, stickyMillis);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource)
+    {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
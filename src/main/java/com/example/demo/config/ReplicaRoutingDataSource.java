@@ -0,0 +1,109 @@
+package com.example.demo.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * маршрутизация соединений между основной базой и репликами
+ * транзакции только на чтение уходят на реплики по кругу, остальные - на основную базу;
+ * после пишущей транзакции пользователь читает с основной базы в течение stickyMillis,
+ * чтобы видеть собственные изменения несмотря на отставание реплик
+ * пулы соединений реплик принадлежат этому источнику и закрываются вместе с ним
+ * должен использоваться через LazyConnectionDataSourceProxy, иначе признак readOnly
+ * еще не выставлен в момент получения соединения
+ * @author ROMAN
+ * @date 2023-03-05
+ * @version 1.0
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    private static final String PRIMARY = "primary";
+
+    private final List<DataSource> replicas;
+
+    private final long stickyMillis;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final Map<String, Long> stickyUntil = new ConcurrentHashMap();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, long stickyMillis)
+    {
+        this.replicas = replicas;
+        this.stickyMillis = stickyMillis;
+        Map<Object, Object> targets = new HashMap();
+        targets.put(PRIMARY, primary);
+        for (int i=0; i<replicas.size(); i++)
+        {
+            targets.put(i, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        log.info("routing read-only transactions to {} replicas", replicas.size());
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey()
+    {
+        String username = currentUsername();
+        long now = System.currentTimeMillis();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly())
+        {
+            Boolean isWrite = TransactionSynchronizationManager.isActualTransactionActive();
+            if (isWrite && username!=null && stickyMillis>0)
+            {
+                stickyUntil.put(username, now + stickyMillis);
+            }
+            return PRIMARY;
+        }
+        if (username!=null)
+        {
+            Long until = stickyUntil.get(username);
+            if (until!=null)
+            {
+                if (until>now)
+                {
+                    return PRIMARY;
+                }
+                stickyUntil.remove(username, until);
+            }
+        }
+        return Math.floorMod(next.getAndIncrement(), replicas.size());
+    }
+
+    @Override
+    public void destroy() throws IOException
+    {
+        for (DataSource replica: replicas)
+        {
+            close(replica);
+        }
+    }
+
+    private static String currentUsername()
+    {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication!=null && authentication.isAuthenticated() ? authentication.getName() : null;
+    }
+
+    private static void close(DataSource dataSource) throws IOException
+    {
+        if (dataSource instanceof Closeable)
+        {
+            ((Closeable) dataSource).close();
+        }
+    }
+}
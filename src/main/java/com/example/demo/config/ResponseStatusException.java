@@ -1,25 +1,25 @@
 package com.example.demo.config;
 
 import lombok.Getter;
-import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 
 /**
  * пользовательское исключение неверного запроса
+ * используется для управления потоком выполнения (400/404/409 и т.д.),
+ * поэтому стек вызовов не заполняется и исключение не логируется при создании -
+ * логирование и формирование ответа выполняет RestExceptionHandler
  * @author ROMAN
  * @date 2023-02-17
- * @version 1.0
+ * @version 1.1
  */
-@Slf4j
 @Getter
 public class ResponseStatusException extends Exception{
 
-    private HttpStatus statusCode;
+    private final HttpStatus statusCode;
 
     public ResponseStatusException(HttpStatus statusCode, String message)
     {
-        super(message);
-        log.info("initialize responseStatusException with statusCode "+statusCode.name());
+        super(message, null, false, false);
         this.statusCode = statusCode;
     }
 }
@@ -0,0 +1,69 @@
+package com.example.demo.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedRuntimeException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * единая обработка исключений ResponseStatusException и ошибок доступа к базе для всех контроллеров
+ * @author ROMAN
+ * @date 2023-03-01
+ * @version 1.0
+ */
+@Slf4j
+@RestControllerAdvice
+public class RestExceptionHandler {
+
+    private final long retryAfterSeconds;
+
+    public RestExceptionHandler(@Value("${datasource.retry-after-seconds:1}") long retryAfterSeconds) {
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * преобразует ResponseStatusException в ответ с соответствующим статусом
+     * @param ex
+     * @return response with status code of exception
+     */
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<Void> handleResponseStatusException(ResponseStatusException ex)
+    {
+        log.warn("request rejected with status {}: {}", ex.getStatusCode().value(), ex.getMessage());
+        return new ResponseEntity<>(ex.getStatusCode());
+    }
+
+    /**
+     * конкурентное изменение сущности, обнаруженное при фиксации транзакции
+     * @param ex
+     * @return 409 response
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Void> handleOptimisticLockingFailure(OptimisticLockingFailureException ex)
+    {
+        log.warn("concurrent modification: {}", ex.getMessage());
+        return new ResponseEntity<>(HttpStatus.CONFLICT);
+    }
+
+    /**
+     * соединение с базой не получено за spring.datasource.hikari.connection-timeout (пул исчерпан или база недоступна)
+     * клиенту предлагается повторить запрос позже вместо ожидания на потоке Tomcat
+     * @param ex
+     * @return 503 response with Retry-After
+     */
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class})
+    public ResponseEntity<Void> handleConnectionUnavailable(NestedRuntimeException ex)
+    {
+        log.warn("database connection unavailable: {}", ex.getMostSpecificCause().getMessage());
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        return new ResponseEntity<>(headers, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+}
@@ -2,6 +2,7 @@ package com.example.demo.config;
 
 
 import com.example.demo.service.impl.UserDetailsServiceImpl;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,6 +13,7 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.web.authentication.logout.HttpStatusReturningLogoutSuccessHandler;
@@ -32,9 +34,12 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
     @Autowired
     private UserDetailsService userDetailsService;
 
+    private final ObjectProvider<CookieSecurityContextRepository> cookieSecurityContextRepository;
+
     @Autowired
-    public SecurityConfig(UserDetailsService userDetailsService) {
+    public SecurityConfig(UserDetailsService userDetailsService, ObjectProvider<CookieSecurityContextRepository> cookieSecurityContextRepository) {
         this.userDetailsService = userDetailsService;
+        this.cookieSecurityContextRepository = cookieSecurityContextRepository;
     }
 
     @Bean
@@ -66,7 +71,16 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
                 .and().
                 logout().logoutRequestMatcher(new AntPathRequestMatcher("/logout", "POST"))
                  .logoutSuccessHandler(new HttpStatusReturningLogoutSuccessHandler(HttpStatus.OK))
-                .invalidateHttpSession(true).deleteCookies("JSESSIONID");
+                .invalidateHttpSession(true).deleteCookies("JSESSIONID", "SESSION", CookieSecurityContextRepository.COOKIE_NAME);
+
+        CookieSecurityContextRepository repository = cookieSecurityContextRepository.getIfAvailable();
+        if (repository!=null)
+        {
+            http
+                    .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+                    .and()
+                    .securityContext().securityContextRepository(repository);
+        }
 
         //super.configure(http);
     }
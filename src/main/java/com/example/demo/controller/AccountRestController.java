@@ -7,10 +7,12 @@ import com.example.demo.service.dto.AccountViewDto;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import javax.validation.Valid;
 import java.security.Principal;
 import java.util.*;
@@ -37,24 +39,36 @@ public class AccountRestController {
     /**
      * получение всех аккаунтов
      * запрос может выполнять только пользователь с ролью user
+     * постраничная выдача по ключу (keyset): следующая страница запрашивается с afterId,
+     * равным id последнего аккаунта, ссылка на нее передается в заголовке Link (rel="next")
+     * @param afterId последний id предыдущей страницы, необязательно
+     * @param pageable размер страницы (size), не более 1000
      * @return
      * 200 - успешный поиск;
+     * 400 - неверные параметры запроса;
      * 401 - запрос от неваторизованного аккаунта, неверные авторизационнные данные;
      */
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping
-    public ResponseEntity<List<AccountViewDto>> getAllAccounts()
+    public ResponseEntity<List<AccountViewDto>> getAllAccounts(@RequestParam(required = false) Integer afterId, Pageable pageable)
     {
         log.info("get all accounts");
-        List<AccountViewDto> list = accountService.findAll();
-        if (list==null)
+        if (afterId!=null && afterId<0)
         {
-            return new ResponseEntity(list, HttpStatus.OK);
+            log.warn("afterId must not be negative");
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
-        else {
-            log.warn("accounts was not found");
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        int size = accountService.pageSize(pageable.getPageSize());
+        List<AccountViewDto> list = accountService.findAll(afterId, size);
+        HttpHeaders headers = new HttpHeaders();
+        if (list.size()==size)
+        {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("afterId", list.get(list.size()-1).getId())
+                    .toUriString();
+            headers.add(HttpHeaders.LINK, "<"+next+">; rel=\"next\"");
         }
+        return new ResponseEntity<>(list, headers, HttpStatus.OK);
     }
 
     /**
@@ -138,30 +152,23 @@ public class AccountRestController {
      */
     @PreAuthorize("hasRole('ROLE_USER')")
     @PutMapping("/{id}")
-    public ResponseEntity<AccountViewDto> updateAccount(@PathVariable Integer id, @Valid @RequestBody AccountDto dto, Principal principal)
+    public ResponseEntity<AccountViewDto> updateAccount(@PathVariable Integer id, @Valid @RequestBody AccountDto dto, Principal principal) throws ResponseStatusException
     {
         log.info("updating information about account");
         Boolean isValid = checkId(id);
         if (isValid)
         {
             dto.setId(id);
-            try {
-                Optional<AccountViewDto> box = accountService.update(dto, principal.getName());
-                if (box.isPresent())
-                {
-                    log.info("updating success");
-                    return new ResponseEntity(box.get(),HttpStatus.OK);
-                }
-                else
-                {
-                    log.warn("updating failed");
-                    return new ResponseEntity<>(HttpStatus.NO_CONTENT);
-                }
+            Optional<AccountViewDto> box = accountService.update(dto, principal.getName());
+            if (box.isPresent())
+            {
+                log.info("updating success");
+                return new ResponseEntity(box.get(),HttpStatus.OK);
             }
-            catch (ResponseStatusException ex)
+            else
             {
-                log.warn(ex.getMessage());
-                return new ResponseEntity(ex.getStatusCode());
+                log.warn("updating failed");
+                return new ResponseEntity<>(HttpStatus.NO_CONTENT);
             }
         }
         else
@@ -185,21 +192,13 @@ public class AccountRestController {
      */
     @PreAuthorize("hasRole('ROLE_USER')")
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteAccount(@PathVariable Integer id, Principal principal)
+    public ResponseEntity<Void> deleteAccount(@PathVariable Integer id, Principal principal) throws ResponseStatusException
     {
         log.info("removing account with id {}",id);
         if (checkId(id))
         {
-            try
-            {
-                accountService.remove(id, principal.getName());
-                return new ResponseEntity<>(HttpStatus.OK);
-            }
-            catch (ResponseStatusException ex)
-            {
-                log.warn(ex.getMessage());
-                return new ResponseEntity<>(ex.getStatusCode());
-            }
+            accountService.remove(id, principal.getName());
+            return new ResponseEntity<>(HttpStatus.OK);
 
         }
         else {
@@ -1,17 +1,26 @@
 package com.example.demo.controller;
 
 import com.example.demo.config.ResponseStatusException;
+import com.example.demo.repository.projection.VersionView;
 import com.example.demo.service.*;
 import com.example.demo.service.dto.*;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.TransactionException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import javax.validation.Valid;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * контроллер для животных, их типах и посещенных точках локации
@@ -35,13 +44,26 @@ public class AnimalRestController {
 
     private final LocationPointService locationPointService;
 
+    private final VisitAppendQueue visitAppendQueue;
+
+    private final VisitJournal visitJournal;
+
+    private final AnimalEventStream animalEventStream;
+
     @Autowired
-    public AnimalRestController(AnimalTypeService animalTypeService, AnimalService animalService, AnimalVisitedLocationService animalVisitedLocationService, AccountService accountService, LocationPointService locationPointService) {
+    public AnimalRestController(AnimalTypeService animalTypeService, AnimalService animalService, AnimalVisitedLocationService animalVisitedLocationService, AccountService accountService, LocationPointService locationPointService, ObjectProvider<VisitAppendQueue> visitAppendQueue, ObjectProvider<VisitJournal> visitJournal, AnimalEventStream animalEventStream) {
         this.animalTypeService = animalTypeService;
         this.animalService = animalService;
         this.animalVisitedLocationService = animalVisitedLocationService;
         this.accountService = accountService;
         this.locationPointService = locationPointService;
+        this.visitAppendQueue = visitAppendQueue.getIfAvailable();
+        this.visitJournal = visitJournal.getIfAvailable();
+        this.animalEventStream = animalEventStream;
+        if (this.visitAppendQueue!=null && this.visitJournal!=null)
+        {
+            throw new IllegalStateException("animal.visits.journal.enabled and animal.visits.write-behind.enabled must not be enabled together");
+        }
     }
 
 
@@ -53,19 +75,32 @@ public class AnimalRestController {
      * получение информации о животном
      * запрос может быть выполнен только пользователем с ролью user
      * @param id
+     * @param request
      * @return
      * 200 - запрос успешно выполнен;
+     * 304 - животное не изменилось (If-None-Match, If-Modified-Since);
      * 400 - неверные параметры запроса;
      * 401 - неверные авторизационные данные, запрос от неваторизованного аккаунта;
      * 404 - животное с id не найдено;
      */
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/{id}")
-    public ResponseEntity<AnimalDto> findAnimalById(@PathVariable Long id)
+    public ResponseEntity<AnimalDto> findAnimalById(@PathVariable Long id, WebRequest request)
     {
         log.info("searching information about animal by id {}", id);
         if (checkId(id))
         {
+            Optional<VersionView> versionBox = animalService.findVersionById(id);
+            if (!versionBox.isPresent())
+            {
+                log.warn("animal was not found");
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+            if (EntityTags.checkNotModified(request, versionBox.get()))
+            {
+                log.info("animal with id {} was not modified", id);
+                return null;
+            }
             Optional<AnimalDto> box = animalService.findById(id);
             if (box.isPresent())
             {
@@ -85,6 +120,25 @@ public class AnimalRestController {
         }
     }
 
+    /**
+     * получение животных по списку id (ids через запятую или повтором параметра, не более 1000)
+     * сущности загружаются одним запросом, результаты возвращаются в порядке запроса;
+     * для ненайденного id элемент содержит found = false
+     * запрос может быть выполнен только пользователями с ролью user
+     * @param ids
+     * @return
+     * 200 - запрос успешно выполнен;
+     * 400 - неверные параметры запроса;
+     * 401 - неверные авторизационные данные, запрос от неавторизованного аккаунта;
+     */
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(params = "ids")
+    public ResponseEntity<List<MultiGetResultDto<AnimalDto>>> findAnimalsByIds(@RequestParam long[] ids) throws ResponseStatusException
+    {
+        log.info("searching animals by {} ids", ids.length);
+        return new ResponseEntity<>(animalService.findAllById(ids), HttpStatus.OK);
+    }
+
     /**
      * поиск животных по параметрам
      * запрос может быть выполнен только пользователями с ролью user
@@ -97,25 +151,37 @@ public class AnimalRestController {
      */
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/search")
-    public ResponseEntity<List<AnimalDto>> searchAnimal(AnimalSearchDto dto, Pageable pageable)
+    public ResponseEntity<List<AnimalDto>> searchAnimal(AnimalSearchDto dto, Pageable pageable) throws ResponseStatusException
     {
         log.info("search animal by parameters");
-        List<AnimalDto> dtoList = new ArrayList();
         Boolean isValidPagination = pageable.getPageNumber()>=0 && pageable.getPageSize()>0;
         if (!isValidPagination)
         {
             log.warn("pagination parameters must be positive");
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
-        try {
-            dtoList = animalService.search(dto, pageable);
-            return new ResponseEntity<>(dtoList, HttpStatus.OK);
-        }
-        catch (ResponseStatusException ex)
-        {
-            log.warn(ex.getMessage());
-            return new ResponseEntity<>(ex.getStatusCode());
-        }
+        List<AnimalDto> dtoList = animalService.search(dto, pageable);
+        return new ResponseEntity<>(dtoList, HttpStatus.OK);
+    }
+
+    /**
+     * лента событий животных (Server-Sent Events): добавление посещенной точки (VISITED),
+     * изменение lifeStatus (LIFE_STATUS_CHANGED), чипирование (CHIPPED);
+     * события приходят после фиксации изменений, клиент, не успевающий читать ленту, отключается
+     * запрос может быть выполнен только пользователями с ролью user
+     * @param filter animalIds (через запятую), typeId, minLatitude, maxLatitude, minLongitude, maxLongitude
+     * @return
+     * 200 - поток событий text/event-stream;
+     * 400 - неверные параметры фильтра;
+     * 401 - неверные авторизационные данные, запрос от неавторизованного аккаунта;
+     * 503 - превышено число подписчиков;
+     */
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAnimalEvents(AnimalEventFilterDto filter) throws ResponseStatusException
+    {
+        log.info("subscribing to animal events");
+        return animalEventStream.subscribe(filter);
     }
 
     /**
@@ -132,26 +198,19 @@ public class AnimalRestController {
      */
     @PreAuthorize("hasRole('ROLE_USER')")
     @PostMapping
-    public ResponseEntity<AnimalDto> addNewAnimal(@Valid @RequestBody AnimalDto dto)
+    public ResponseEntity<AnimalDto> addNewAnimal(@Valid @RequestBody AnimalDto dto) throws ResponseStatusException
     {
         log.info("adding new animal");
-        try {
-            Optional<AnimalDto> box = animalService.add(dto);
-            if (box.isPresent())
-            {
-                log.info("adding success");
-                return new ResponseEntity<>(box.get(), HttpStatus.CREATED);
-            }
-            else
-            {
-                log.warn("adding failed");
-                return new ResponseEntity<>(HttpStatus.NO_CONTENT);
-            }
+        Optional<AnimalDto> box = animalService.add(dto);
+        if (box.isPresent())
+        {
+            log.info("adding success");
+            return new ResponseEntity<>(box.get(), HttpStatus.CREATED);
         }
-        catch (ResponseStatusException ex)
+        else
         {
-            log.warn(ex.getMessage());
-            return new ResponseEntity<>(ex.getStatusCode());
+            log.warn("adding failed");
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
         }
     }
 
@@ -160,9 +219,12 @@ public class AnimalRestController {
      * запрос может быть выполнен только пользователями с ролью user
      * @param id
      * @param dto
+     * @param ifMatch ожидаемая версия (ETag), необязательно
      * @return
      * 200 - запрос успешно выполнен;
      * 400 - неверные параметры запроса;
+     * 409 - животное изменено конкурентным запросом;
+     * 412 - версия животного не совпадает с If-Match;
      * 401 - запрос от неавторизованного аккаунта, неверные авторизационные данные;
      * 404 - животное с id не найдено,
      * аккаунт с chipperId не найден,
@@ -170,31 +232,24 @@ public class AnimalRestController {
      */
     @PreAuthorize("hasRole('ROLE_USER')")
     @PutMapping("/{id}")
-    public ResponseEntity<AnimalDto> updateAnimal(@PathVariable Long id, @Valid @RequestBody AnimalDto dto)
+    public ResponseEntity<AnimalDto> updateAnimal(@PathVariable Long id, @Valid @RequestBody AnimalDto dto, @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws ResponseStatusException
     {
         log.info("updating information about animal");
         Boolean isValid = checkId(id);
         if (isValid)
         {
             dto.setId(id);
-            try
+            dto.setVersion(EntityTags.versionOf(ifMatch));
+            Optional<AnimalDto> box = animalService.update(dto);
+            if (box.isPresent())
             {
-                Optional<AnimalDto> box = animalService.update(dto);
-                if (box.isPresent())
-                {
-                    log.info("updating success");
-                    return new ResponseEntity<>(box.get(), HttpStatus.OK);
-                }
-                else
-                {
-                    log.warn("updating failed");
-                    return new ResponseEntity<>(HttpStatus.NO_CONTENT);
-                }
+                log.info("updating success");
+                return new ResponseEntity<>(box.get(), EntityTags.headers(box.get().getVersion()), HttpStatus.OK);
             }
-            catch (ResponseStatusException ex)
+            else
             {
-                log.warn(ex.getMessage());
-                return new ResponseEntity<>(ex.getStatusCode());
+                log.warn("updating failed");
+                return new ResponseEntity<>(HttpStatus.NO_CONTENT);
             }
         }
         else
@@ -216,21 +271,13 @@ public class AnimalRestController {
      */
     @PreAuthorize("hasRole('ROLE_USER')")
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> removeAnimal(@PathVariable Long id)
+    public ResponseEntity<Void> removeAnimal(@PathVariable Long id) throws ResponseStatusException
     {
         log.info("removing animal with id "+id);
         if (checkId(id))
         {
-            try
-            {
-                animalService.remove(id);
-                return new ResponseEntity<>(HttpStatus.OK);
-            }
-            catch (ResponseStatusException ex)
-            {
-                log.warn(ex.getMessage());
-                return new ResponseEntity<>(ex.getStatusCode());
-            }
+            animalService.remove(id);
+            return new ResponseEntity<>(HttpStatus.OK);
         }
         else
         {
@@ -252,30 +299,22 @@ public class AnimalRestController {
      */
     @PreAuthorize("hasRole('ROLE_USER')")
     @PostMapping("/{animalId}/types/{typeId}")
-    public ResponseEntity<AnimalDto> addAnimalTypeToAnimal(@PathVariable("animalId") Long animalId, @PathVariable("typeId") Long typeId)
+    public ResponseEntity<AnimalDto> addAnimalTypeToAnimal(@PathVariable("animalId") Long animalId, @PathVariable("typeId") Long typeId) throws ResponseStatusException
     {
         log.info("adding animal type to animal");
         Boolean isValid = checkId(animalId) && checkId(typeId);
         if (isValid)
         {
-           try
+           Optional<AnimalDto> box = animalService.addAnimalTypeToAnimal(animalId, typeId);
+           if (box.isPresent())
            {
-               Optional<AnimalDto> box = animalService.addAnimalTypeToAnimal(animalId, typeId);
-               if (box.isPresent())
-               {
-                   log.info("adding success");
-                   return new ResponseEntity<>(box.get(), HttpStatus.OK);
-               }
-               else
-               {
-                   log.warn("adding failed");
-                   return new ResponseEntity<>(HttpStatus.NO_CONTENT);
-               }
+               log.info("adding success");
+               return new ResponseEntity<>(box.get(), HttpStatus.OK);
            }
-           catch (ResponseStatusException ex)
+           else
            {
-               log.warn(ex.getMessage());
-               return new ResponseEntity(ex.getStatusCode());
+               log.warn("adding failed");
+               return new ResponseEntity<>(HttpStatus.NO_CONTENT);
            }
         }
         else
@@ -285,6 +324,25 @@ public class AnimalRestController {
         }
     }
 
+    /**
+     * массовое добавление и удаление типов у множества животных
+     * запрос может быть выполнен только пользователями с ролью user
+     * @param dto
+     * @return
+     * 200 - запрос выполнен, результат для каждого животного (UPDATED, NOT_FOUND, NO_TYPES_LEFT);
+     * 400 - неверные параметры запроса, add и remove пусты или равны null;
+     * 401 - запрос от неваторизованного аккаунта, неверные авторизационные данные;
+     * 404 - тип животного из add или remove не найден;
+     */
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @PostMapping("/types/bulk")
+    public ResponseEntity<List<AnimalTypeBulkResultDto>> updateAnimalTypes(@Valid @RequestBody AnimalTypeBulkDto dto) throws ResponseStatusException
+    {
+        log.info("bulk updating animal types");
+        List<AnimalTypeBulkResultDto> results = animalService.updateAnimalTypes(dto);
+        return new ResponseEntity<>(results, HttpStatus.OK);
+    }
+
     /**
      * обновление типа животного для животного
      *  запрос может быть выполнен только пользователями с ролью user
@@ -303,30 +361,22 @@ public class AnimalRestController {
      */
     @PreAuthorize("hasRole('ROLE_USER')")
     @PutMapping("/{animalId}/types")
-    public ResponseEntity<AnimalDto> updateAnimalTypeForAnimal(@PathVariable("animalId") Long animalId, @Valid @RequestBody AnimalTypeUpdateDto dto)
+    public ResponseEntity<AnimalDto> updateAnimalTypeForAnimal(@PathVariable("animalId") Long animalId, @Valid @RequestBody AnimalTypeUpdateDto dto) throws ResponseStatusException
     {
         log.info("updating animal type for animal");
         Boolean isValid = checkId(animalId) && dto!=null;
         if (isValid)
         {
-            try
+            Optional<AnimalDto> box = animalService.updateAnimalTypeForAnimal(animalId, dto);
+            if (box.isPresent())
             {
-                Optional<AnimalDto> box = animalService.updateAnimalTypeForAnimal(animalId, dto);
-                if (box.isPresent())
-                {
-                    log.info("updating success");
-                    return new ResponseEntity<>(box.get(), HttpStatus.OK);
-                }
-                else
-                {
-                    log.warn("updating failed");
-                    return new ResponseEntity(HttpStatus.NO_CONTENT);
-                }
+                log.info("updating success");
+                return new ResponseEntity<>(box.get(), HttpStatus.OK);
             }
-            catch (ResponseStatusException ex)
+            else
             {
-                log.warn(ex.getMessage());
-                return new ResponseEntity(ex.getStatusCode());
+                log.warn("updating failed");
+                return new ResponseEntity(HttpStatus.NO_CONTENT);
             }
         }
         else
@@ -351,28 +401,21 @@ public class AnimalRestController {
      */
     @PreAuthorize("hasRole('ROLE_USER')")
     @DeleteMapping("/{animalId}/types/{typeId}")
-    public ResponseEntity<Void> removeAnimalTypeForAnimal(@PathVariable("animalId") Long animalId,  @PathVariable("typeId") Long typeId)
+    public ResponseEntity<Void> removeAnimalTypeForAnimal(@PathVariable("animalId") Long animalId,  @PathVariable("typeId") Long typeId) throws ResponseStatusException
     {
         log.info("removing animal type for animal");
         if (checkId(animalId) && checkId(typeId))
         {
-            try {
-                Optional<AnimalDto> box = animalService.removeAnimalTypeForAnimal(animalId, typeId);
-                if (box.isPresent())
-                {
-                    log.info("removing success");
-                    return new ResponseEntity(box.get(),HttpStatus.OK);
-                }
-                else
-                {
-                    log.warn("removing failed");
-                    return new ResponseEntity<>(HttpStatus.NO_CONTENT);
-                }
+            Optional<AnimalDto> box = animalService.removeAnimalTypeForAnimal(animalId, typeId);
+            if (box.isPresent())
+            {
+                log.info("removing success");
+                return new ResponseEntity(box.get(),HttpStatus.OK);
             }
-            catch (ResponseStatusException ex)
+            else
             {
-                log.warn(ex.getMessage());
-                return new ResponseEntity(ex.getStatusCode());
+                log.warn("removing failed");
+                return new ResponseEntity<>(HttpStatus.NO_CONTENT);
             }
         }
         else
@@ -400,7 +443,7 @@ public class AnimalRestController {
      */
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/{id}/locations")
-    public ResponseEntity<List<AnimalVisitedLocationDto>> findAnimalVisitedLocations(@PathVariable Long id, AnimalVisitedLocationSearchDto dto, Pageable pageable)
+    public ResponseEntity<List<AnimalVisitedLocationDto>> findAnimalVisitedLocations(@PathVariable Long id, AnimalVisitedLocationSearchDto dto, Pageable pageable) throws ResponseStatusException
     {
         log.info("search animal visited locations");
         Boolean isValidRequest = pageable.getPageNumber()>=0 && pageable.getPageSize()>0;
@@ -408,15 +451,8 @@ public class AnimalRestController {
         {
             if (checkId(id))
             {
-                try {
-                   List<AnimalVisitedLocationDto> list = animalVisitedLocationService.findAll(id, dto, pageable);
-                   return new ResponseEntity<>(list, HttpStatus.OK);
-                }
-                catch (ResponseStatusException ex)
-                {
-                    log.warn(ex.getMessage());
-                    return new ResponseEntity(ex.getStatusCode());
-                }
+                List<AnimalVisitedLocationDto> list = animalVisitedLocationService.findAll(id, dto, pageable);
+                return new ResponseEntity<>(list, HttpStatus.OK);
             }
             else
             {
@@ -434,46 +470,72 @@ public class AnimalRestController {
     /**
      * добавление точки локации, посещенных животными
      * Запрос может быть выполнен только пользователями с ролью user
+     * режим выбирается свойствами, включить оба режима одновременно нельзя (приложение не запускается):
+     * - по умолчанию посещение добавляется в транзакции запроса, ответ 201 с телом;
+     * - отложенная запись (animal.visits.write-behind.enabled): добавление ставится в очередь и фиксируется
+     * вместе с другими одной транзакцией, ответ 202 с телом отправляется после фиксации пакета, правила проверены;
+     * - журнал (animal.visits.journal.enabled): ответ 202 без тела отправляется после записи в локальный журнал на диске;
+     * если база доступна, до записи проверяется только существование животного и точки (404),
+     * остальные правила (400) проверяются при переносе в базу, отклоненная запись только журналируется,
+     * поэтому 202 в этом режиме не гарантирует, что посещение будет добавлено
      * @param animalId
      * @param pointId
      * @return
      * 201 - запрос успешно выполнен;
-     * 400 - неверные параметры запроса;
+     * 202 - добавление зафиксировано в составе пакета (отложенная запись) или записано в журнал (без тела);
+     * 400 - неверные параметры запроса, нарушены правила добавления (кроме режима журнала);
      * 401 - неверные авторизационные данные, запрос от неваторизованного аккаунта;
-     * 404 - животное с animalId не найдено, точка локации с pointId не найдена;
+     * 404 - животное с animalId не найдено, точка локации с pointId не найдена
+     * (в режиме журнала - только при доступной базе);
+     * 409 - животное конкурентно изменяется, добавление не удалось после повторов;
+     * 503 - очередь отложенной записи переполнена, журнал недоступен для записи;
      */
     @PreAuthorize("hasRole('ROLE_USER')")
     @PostMapping("/{animalId}/locations/{pointId}")
-    public ResponseEntity<AnimalVisitedLocationDto> addAnimalVisitedLocationPoint(@PathVariable("animalId") Long animalId, @PathVariable("pointId") Long pointId)
+    public CompletableFuture<ResponseEntity<AnimalVisitedLocationDto>> addAnimalVisitedLocationPoint(@PathVariable("animalId") Long animalId, @PathVariable("pointId") Long pointId) throws ResponseStatusException
     {
         log.info("adding location point");
         Boolean isValid = checkId(animalId) && checkId(pointId);
         if (isValid)
         {
-            try
+            if (visitJournal!=null)
             {
-                Optional<AnimalVisitedLocationDto> box = animalVisitedLocationService.add(animalId, pointId);
-                if (box.isPresent())
+                if (visitJournal.isDatabaseAvailable())
                 {
-                    log.info("adding success");
-                    return new ResponseEntity<>(box.get(), HttpStatus.CREATED);
-                }
-                else
-                {
-                    log.warn("adding failed");
-                    return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+                    try
+                    {
+                        animalVisitedLocationService.checkExists(animalId, pointId);
+                    }
+                    catch (DataAccessException | TransactionException ex)
+                    {
+                        log.warn("database is unavailable, adding is journaled without checking ids: {}", ex.getMessage());
+                    }
                 }
+                long sequence = visitJournal.append(animalId, pointId);
+                log.info("adding journaled as record {}", sequence);
+                return CompletableFuture.completedFuture(new ResponseEntity<>(HttpStatus.ACCEPTED));
             }
-            catch (ResponseStatusException ex)
+            if (visitAppendQueue!=null)
             {
-                log.warn(ex.getMessage());
-                return new ResponseEntity<>(ex.getStatusCode());
+                return visitAppendQueue.submit(animalId, pointId)
+                        .thenApply(dto -> new ResponseEntity<>(dto, HttpStatus.ACCEPTED));
+            }
+            Optional<AnimalVisitedLocationDto> box = animalVisitedLocationService.add(animalId, pointId);
+            if (box.isPresent())
+            {
+                log.info("adding success");
+                return CompletableFuture.completedFuture(new ResponseEntity<>(box.get(), HttpStatus.CREATED));
+            }
+            else
+            {
+                log.warn("adding failed");
+                return CompletableFuture.completedFuture(new ResponseEntity<>(HttpStatus.NO_CONTENT));
             }
         }
         else
         {
             log.info("animalId and pointId are mandatory and must be positive");
-            return new ResponseEntity(HttpStatus.BAD_REQUEST);
+            return CompletableFuture.completedFuture(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
         }
     }
 
@@ -495,28 +557,21 @@ public class AnimalRestController {
      */
     @PreAuthorize("hasRole('ROLE_USER')")
     @PutMapping("/{id}/locations")
-    public ResponseEntity<AnimalVisitedLocationDto> updateAnimalVisitedLocationPoint(@PathVariable Long id, @Valid @RequestBody  AnimalVisitedLocationUpdateDto dto)    {
+    public ResponseEntity<AnimalVisitedLocationDto> updateAnimalVisitedLocationPoint(@PathVariable Long id, @Valid @RequestBody  AnimalVisitedLocationUpdateDto dto) throws ResponseStatusException
+    {
         log.info("updating information about animal visited location");
         Boolean isValid = checkId(id);
         if (isValid)
         {
-            try
+            Optional<AnimalVisitedLocationDto> box = animalVisitedLocationService.update(id, dto);
+            if (box.isPresent())
             {
-                Optional<AnimalVisitedLocationDto> box = animalVisitedLocationService.update(id, dto);
-                if (box.isPresent())
-                {
-                    return new ResponseEntity<>(box.get(), HttpStatus.OK);
-                }
-                else
-                {
-                    log.warn("updating failed");
-                    return new ResponseEntity<>(HttpStatus.NO_CONTENT);
-                }
+                return new ResponseEntity<>(box.get(), HttpStatus.OK);
             }
-            catch (ResponseStatusException ex)
+            else
             {
-                log.warn(ex.getMessage());
-                return new ResponseEntity<>(ex.getStatusCode());
+                log.warn("updating failed");
+                return new ResponseEntity<>(HttpStatus.NO_CONTENT);
             }
         }
         else
@@ -541,22 +596,14 @@ public class AnimalRestController {
      */
     @PreAuthorize("hasRole('ROLE_USER')")
     @DeleteMapping("/{animalId}/locations/{pointId}")
-    public ResponseEntity<Void> removeAnimalVisitedLocationPoint(@PathVariable Long animalId, @PathVariable Long pointId)
+    public ResponseEntity<Void> removeAnimalVisitedLocationPoint(@PathVariable Long animalId, @PathVariable Long pointId) throws ResponseStatusException
     {
         log.info("removing visited location point {} for animal {}", pointId, animalId);
         Boolean isValid = checkId(animalId) && checkId(pointId);
         if (isValid)
         {
-            try
-            {
-                animalVisitedLocationService.remove(animalId, pointId);
-                return new ResponseEntity<>(HttpStatus.OK);
-            }
-            catch (ResponseStatusException ex)
-            {
-                log.warn(ex.getMessage());
-                return new ResponseEntity<>(ex.getStatusCode());
-            }
+            animalVisitedLocationService.remove(animalId, pointId);
+            return new ResponseEntity<>(HttpStatus.OK);
 
         }
         else
@@ -572,12 +619,33 @@ public class AnimalRestController {
      * animalTypes region
      */
 
+    /**
+     * получение типов животных по списку id (ids через запятую или повтором параметра, не более 1000)
+     * сущности загружаются одним запросом (закэшированные - из кэша второго уровня), результаты возвращаются в порядке запроса;
+     * для ненайденного id элемент содержит found = false
+     * запрос может быть выполнен только пользователями с ролью user
+     * @param ids
+     * @return
+     * 200 - запрос успешно выполнен;
+     * 400 - неверные параметры запроса;
+     * 401 - неверные авторизационные данные, запрос от неавторизованного аккаунта;
+     */
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/types", params = "ids")
+    public ResponseEntity<List<MultiGetResultDto<AnimalTypeDto>>> findAnimalTypesByIds(@RequestParam long[] ids) throws ResponseStatusException
+    {
+        log.info("searching animal types by {} ids", ids.length);
+        return new ResponseEntity<>(animalTypeService.findAllById(ids), HttpStatus.OK);
+    }
+
     /**
      * получение информации о типе животного
      * запрос может быть выполнен тоько пользователями с ролью user
      * @param id
+     * @param request
      * @return
      * 200 - запрос успешно выполнен;
+     * 304 - тип животного не изменился (If-None-Match, If-Modified-Since);
      * 400 - неверные параметры хзапроса;
      * 401 - запрос от неавторизованного аккаунта, неверные авторизационные данные;
      * 404 - тип живаотного с id не найден;
@@ -585,11 +653,22 @@ public class AnimalRestController {
 
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/types/{id}")
-    public ResponseEntity<AnimalTypeDto> findBAnimalTypeById(@PathVariable Long id)
+    public ResponseEntity<AnimalTypeDto> findBAnimalTypeById(@PathVariable Long id, WebRequest request)
     {
         log.info("searching animal type by id");
         if (checkId(id))
         {
+            Optional<VersionView> versionBox = animalTypeService.findVersionById(id);
+            if (!versionBox.isPresent())
+            {
+                log.warn("animal type was not found");
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+            if (EntityTags.checkNotModified(request, versionBox.get()))
+            {
+                log.info("animal type with id {} was not modified", id);
+                return null;
+            }
             Optional<AnimalTypeDto> box = animalTypeService.findById(id);
             if (box.isPresent())
             {
@@ -621,27 +700,19 @@ public class AnimalRestController {
      */
     @PreAuthorize("hasRole('ROLE_USER')")
     @PostMapping("/types")
-    public ResponseEntity<AnimalTypeDto> addAnimalType(@Valid @RequestBody AnimalTypeDto dto)
+    public ResponseEntity<AnimalTypeDto> addAnimalType(@Valid @RequestBody AnimalTypeDto dto) throws ResponseStatusException
     {
         log.info("adding new animal type");
-        try
+        Optional<AnimalTypeDto> box = animalTypeService.add(dto);
+        if (box.isPresent())
         {
-            Optional<AnimalTypeDto> box = animalTypeService.add(dto);
-            if (box.isPresent())
-            {
-                log.info("adding success");
-                return new ResponseEntity<>(box.get(), HttpStatus.CREATED);
-            }
-            else
-            {
-                log.warn("adding failed");
-                return new ResponseEntity<>(HttpStatus.NO_CONTENT);
-            }
+            log.info("adding success");
+            return new ResponseEntity<>(box.get(), HttpStatus.CREATED);
         }
-        catch (ResponseStatusException ex)
+        else
         {
-            log.warn(ex.getMessage());
-            return new ResponseEntity<>(ex.getStatusCode());
+            log.warn("adding failed");
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
         }
     }
 
@@ -650,8 +721,10 @@ public class AnimalRestController {
      * запрос может быть выполнен тоько пользователями с ролью user
      * @param id
      * @param dto
+     * @param ifMatch ожидаемая версия (ETag), необязательно
      * @return
      * 200 - запрос успешено выполнен;
+     * 412 - версия типа животного не совпадает с If-Match;
      * 400 - неверные параметры запроса;
      * 401 - запрос от неавторизованного аккаунта, неверные авторизационные данные;
      * 404 - тип животного с id не найден;
@@ -659,30 +732,23 @@ public class AnimalRestController {
      */
     @PreAuthorize("hasRole('ROLE_USER')")
     @PutMapping("/types/{id}")
-    public ResponseEntity<AnimalTypeDto> updateAnimalType(@PathVariable Long id, @Valid @RequestBody AnimalTypeDto dto)
+    public ResponseEntity<AnimalTypeDto> updateAnimalType(@PathVariable Long id, @Valid @RequestBody AnimalTypeDto dto, @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws ResponseStatusException
     {
         log.info("updating information about animal type");
         if (checkId(id))
         {
             dto.setId(id);
-            try
+            dto.setVersion(EntityTags.versionOf(ifMatch));
+            Optional<AnimalTypeDto> box = animalTypeService.update(dto);
+            if (box.isPresent())
             {
-                Optional<AnimalTypeDto> box = animalTypeService.update(dto);
-                if (box.isPresent())
-                {
-                    log.info("updating success");
-                    return new ResponseEntity<>(box.get(), HttpStatus.OK);
-                }
-                else
-                {
-                    log.warn("updating failed");
-                    return new ResponseEntity<>(HttpStatus.NO_CONTENT);
-                }
+                log.info("updating success");
+                return new ResponseEntity<>(box.get(), EntityTags.headers(box.get().getVersion()), HttpStatus.OK);
             }
-            catch (ResponseStatusException ex)
+            else
             {
-                log.warn(ex.getMessage());
-                return new ResponseEntity<>(ex.getStatusCode());
+                log.warn("updating failed");
+                return new ResponseEntity<>(HttpStatus.NO_CONTENT);
             }
         }
         else
@@ -704,20 +770,13 @@ public class AnimalRestController {
      */
     @PreAuthorize("hasRole('ROLE_USER')")
     @DeleteMapping("/types/{id}")
-    public ResponseEntity<Void> removeAnimalType(@PathVariable Long id)
+    public ResponseEntity<Void> removeAnimalType(@PathVariable Long id) throws ResponseStatusException
     {
         log.info("removing animal type with id "+id);
         if (checkId(id))
         {
-            try {
-                animalTypeService.remove(id);
-                return new ResponseEntity<>(HttpStatus.OK);
-            }
-            catch (ResponseStatusException ex)
-            {
-                log.warn(ex.getMessage());
-                return new ResponseEntity<>(ex.getStatusCode());
-            }
+            animalTypeService.remove(id);
+            return new ResponseEntity<>(HttpStatus.OK);
         }
         else
         {
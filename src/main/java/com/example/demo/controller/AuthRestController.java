@@ -8,6 +8,7 @@ import com.example.demo.service.dto.AccountViewDto;
 import com.example.demo.service.mapper.AccountMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -19,6 +20,7 @@ import org.springframework.security.web.authentication.WebAuthenticationDetails;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
 import javax.validation.Valid;
 import java.security.Principal;
 import java.util.Optional;
@@ -43,13 +45,20 @@ public class AuthRestController {
 
     private final AuthenticationManager authenticationManager;
 
+    /**
+     * контекст безопасности хранится в зашифрованной cookie, контейнерная сессия не создается
+     */
+    private final boolean isCookieSession;
+
 
     @Autowired
-    public AuthRestController(UserDetailsService userDetailsService, AccountService accountService, AccountMapper accountMapper, AuthenticationManager authenticationManager) {
+    public AuthRestController(UserDetailsService userDetailsService, AccountService accountService, AccountMapper accountMapper, AuthenticationManager authenticationManager,
+                              @Value("${session.cookie.enabled:false}") boolean isCookieSession) {
         this.userDetailsService = userDetailsService;
         this.accountService = accountService;
         this.accountMapper = accountMapper;
         this.authenticationManager = authenticationManager;
+        this.isCookieSession = isCookieSession;
     }
 
     /**
@@ -87,48 +96,42 @@ public class AuthRestController {
      * 409 - аккаунт с таким email уже существует;
      */
     @PostMapping("/registration")
-    public ResponseEntity<AccountViewDto> register(@Valid @RequestBody AccountDto dto, Principal principal, HttpServletRequest request)
+    public ResponseEntity<AccountViewDto> register(@Valid @RequestBody AccountDto dto, Principal principal, HttpServletRequest request) throws ResponseStatusException
     {
         log.info("register new account");
 
-        try
+        String password = dto.getPassword();
+        Optional<AccountDto> box = accountService.add(dto, principal);
+        if (box.isPresent())
         {
-            String password = dto.getPassword();
-            Optional<AccountDto> box = accountService.add(dto, principal);
-            if (box.isPresent())
+            AccountDto item = box.get();
+            log.info("register success, created account id is {}", box.get().getId());
+            log.info("login in the system");
+            authenticateUserAndSetSession(dto.getEmail(), password, request);
+            String authUserName = SecurityContextHolder.getContext().getAuthentication().getName();
+            if (authUserName!=null)
             {
-                AccountDto item = box.get();
-                log.info("register success, created account id is {}", box.get().getId());
-                log.info("login in the system");
-                authenticateUserAndSetSession(dto.getEmail(), password, request);
-                String authUserName = SecurityContextHolder.getContext().getAuthentication().getName();
-                if (authUserName!=null)
-                {
-                    log.info("success authorize user with email "+authUserName);
-                    return new ResponseEntity(accountMapper.convertDtoToViewDto(item), HttpStatus.CREATED);
-                }
-                else
-                {
-                    log.warn("authorization failed");
-                    return new ResponseEntity<>(HttpStatus.NO_CONTENT);
-                }
-
-
+                log.info("success authorize user with email "+authUserName);
+                return new ResponseEntity(accountMapper.convertDtoToViewDto(item), HttpStatus.CREATED);
             }
-            else {
-                log.error("register failed");
-                return new ResponseEntity(HttpStatus.NO_CONTENT);
+            else
+            {
+                log.warn("authorization failed");
+                return new ResponseEntity<>(HttpStatus.NO_CONTENT);
             }
+
+
         }
-        catch (ResponseStatusException ex)
-        {
-            log.warn(ex.getMessage());
-            return new ResponseEntity<>(ex.getStatusCode());
+        else {
+            log.error("register failed");
+            return new ResponseEntity(HttpStatus.NO_CONTENT);
         }
     }
 
     /**
      * метод-заглушка для обработки выхода из приложения
+     * при session.cookie.enabled=true сеанс не хранится на сервере: выход удаляет cookie SESSION_TOKEN в браузере,
+     * но уже выданная cookie остается действительной до истечения своего срока (см. CookieSecurityContextRepository)
      * @param request
      * @return
      */
@@ -136,7 +139,11 @@ public class AuthRestController {
     public ResponseEntity<Void> logout(HttpServletRequest request)
     {
         log.info("clear session");
-        request.getSession().invalidate();
+        HttpSession session = request.getSession(false);
+        if (session!=null)
+        {
+            session.invalidate();
+        }
         log.info("logout success");
         return new ResponseEntity<>(HttpStatus.OK);
     }
@@ -151,7 +158,11 @@ public class AuthRestController {
     {
         log.info("#1. username {}, password {}",username, password);
         UsernamePasswordAuthenticationToken token = new UsernamePasswordAuthenticationToken(username, password);
-        request.getSession();
+        if (!isCookieSession)
+        {
+            //сессия создается до записи ответа, чтобы контекст безопасности был сохранен в хранилище сессий
+            request.getSession();
+        }
         Authentication authenticatedUser = authenticationManager.authenticate(token);
         token.setDetails(new WebAuthenticationDetails(request));
         SecurityContextHolder.getContext().setAuthentication(authenticatedUser);
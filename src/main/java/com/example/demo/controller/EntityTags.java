@@ -0,0 +1,83 @@
+package com.example.demo.controller;
+
+import com.example.demo.repository.projection.VersionView;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * поддержка условных GET запросов (If-None-Match, If-Modified-Since)
+ * строгий ETag формируется из версии сущности, Last-Modified - из updated_at
+ * @author ROMAN
+ * @date 2023-03-02
+ * @version 1.0
+ */
+final class EntityTags {
+
+    private EntityTags() {
+    }
+
+    /**
+     * строгий ETag для версии сущности
+     * @param version
+     * @return quoted entity tag
+     */
+    static String of(Long version)
+    {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * версия из заголовка If-Match
+     * слабые и некорректные теги не совпадают ни с одной версией (RFC 7232, строгое сравнение)
+     * @param ifMatch
+     * @return expected version, -1 for unmatchable tag or null if header is absent or equals *
+     */
+    static Long versionOf(String ifMatch)
+    {
+        if (ifMatch==null || ifMatch.isBlank() || ifMatch.trim().equals("*"))
+        {
+            return null;
+        }
+        String tag = ifMatch.split(",")[0].trim();
+        if (tag.length()<3 || !tag.startsWith("\"") || !tag.endsWith("\""))
+        {
+            return -1L;
+        }
+        try
+        {
+            return Long.parseLong(tag.substring(1, tag.length()-1));
+        }
+        catch (NumberFormatException ex)
+        {
+            return -1L;
+        }
+    }
+
+    /**
+     * заголовки ответа с ETag текущей версии
+     * @param version
+     * @return HttpHeaders
+     */
+    static HttpHeaders headers(Long version)
+    {
+        HttpHeaders headers = new HttpHeaders();
+        if (version!=null)
+        {
+            headers.setETag(of(version));
+        }
+        return headers;
+    }
+
+    /**
+     * проверяет условные заголовки запроса по версии сущности
+     * и выставляет ETag и Last-Modified в ответе
+     * @param request
+     * @param view
+     * @return true if client copy is up to date and 304 was set
+     */
+    static boolean checkNotModified(WebRequest request, VersionView view)
+    {
+        long lastModified = view.getUpdatedAt()!=null ? view.getUpdatedAt().toInstant().toEpochMilli() : -1;
+        return request.checkNotModified(of(view.getVersion()), lastModified);
+    }
+}
@@ -1,17 +1,29 @@
 package com.example.demo.controller;
 
 import com.example.demo.config.ResponseStatusException;
+import com.example.demo.repository.projection.VersionView;
+import com.example.demo.service.AnimalService;
+import com.example.demo.service.AnimalVisitedLocationService;
 import com.example.demo.service.LocationPointService;
+import com.example.demo.service.dto.AnimalDto;
+import com.example.demo.service.dto.AnimalVisitedLocationDto;
+import com.example.demo.service.dto.LocationPointBulkDto;
+import com.example.demo.service.dto.LocationPointBulkResultDto;
 import com.example.demo.service.dto.LocationPointDto;
+import com.example.demo.service.dto.MultiGetResultDto;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import javax.servlet.http.HttpServletRequest;
-import javax.servlet.http.HttpSession;
 import javax.validation.Valid;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -28,30 +40,67 @@ public class LocationRestController {
 
     private final LocationPointService locationPointService;
 
+    private final AnimalService animalService;
+
+    private final AnimalVisitedLocationService animalVisitedLocationService;
+
     @Autowired
-    public LocationRestController(LocationPointService locationPointService) {
+    public LocationRestController(LocationPointService locationPointService, AnimalService animalService, AnimalVisitedLocationService animalVisitedLocationService) {
         this.locationPointService = locationPointService;
+        this.animalService = animalService;
+        this.animalVisitedLocationService = animalVisitedLocationService;
+    }
+
+    /**
+     * получение точек локации по списку id (ids через запятую или повтором параметра, не более 1000)
+     * сущности загружаются одним запросом (закэшированные - из кэша второго уровня), результаты возвращаются в порядке запроса;
+     * для ненайденного id элемент содержит found = false
+     * запрос может быть выполнен только пользователями с ролью user
+     * @param ids
+     * @return
+     * 200 - запрос успешно выполнен;
+     * 400 - неверные параметры запроса;
+     * 401 - неверные авторизационные данные, запрос от неавторизованного аккаунта;
+     */
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(params = "ids")
+    public ResponseEntity<List<MultiGetResultDto<LocationPointDto>>> findLocationPointsByIds(@RequestParam long[] ids) throws ResponseStatusException
+    {
+        log.info("searching location points by {} ids", ids.length);
+        return new ResponseEntity<>(locationPointService.findAllById(ids), HttpStatus.OK);
     }
 
     /**
      * получение информации о точке локации животных
      * запрос может быть выполнен только пользователями с ролью user
      * @param id
-     * @param session
+     * @param request
      * @return
      * 200 - запрос успешно выполнен;
+     * 304 - точка локации не изменилась (If-None-Match, If-Modified-Since);
      * 400 - неверные апараметры запроса;
      * 401 - неверные авторизационные данные;
      * 404 - точка локации с id не найдена;
      */
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/{id}")
-    public ResponseEntity<LocationPointDto> findByLocationPointId(@PathVariable Long id, HttpSession session)
+    public ResponseEntity<LocationPointDto> findByLocationPointId(@PathVariable Long id, WebRequest request)
     {
 
         log.info("searching location point by id {}",id);
         if (checkId(id))
         {
+            Optional<VersionView> versionBox = locationPointService.findVersionById(id);
+            if (!versionBox.isPresent())
+            {
+                log.warn("location point was not found");
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+            if (EntityTags.checkNotModified(request, versionBox.get()))
+            {
+                log.info("location point with id {} was not modified", id);
+                return null;
+            }
             Optional<LocationPointDto> box = locationPointService.findById(id);
             if (box.isPresent())
             {
@@ -72,6 +121,122 @@ public class LocationRestController {
 
     }
 
+    /**
+     * получение животных, чипированных в точке локации
+     * запрос может быть выполнен только пользователями с ролью user
+     * постраничная выдача по ключу (keyset): следующая страница запрашивается с afterId,
+     * равным id последнего животного, ссылка на нее передается в заголовке Link (rel="next")
+     * @param id
+     * @param afterId последний id предыдущей страницы, необязательно
+     * @param pageable размер страницы (size), не более 1000
+     * @return
+     * 200 - запрос успешно выполнен;
+     * 400 - неверные параметры запроса;
+     * 401 - неверные авторизационные данные;
+     * 404 - точка локации с id не найдена;
+     */
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/{id}/animals")
+    public ResponseEntity<List<AnimalDto>> findChippedAnimals(@PathVariable Long id, @RequestParam(required = false) Long afterId, Pageable pageable) throws ResponseStatusException
+    {
+        log.info("get animals chipped at location point {}", id);
+        if (checkId(id) && (afterId==null || afterId>=0))
+        {
+            int size = animalService.pageSize(pageable.getPageSize());
+            List<AnimalDto> list = animalService.findByChippingLocation(id, afterId, size);
+            return new ResponseEntity<>(list, nextPageHeaders(list.size()==size ? list.get(list.size()-1).getId() : null), HttpStatus.OK);
+        }
+        else
+        {
+            log.warn("id is mandatory and must be positive, afterId must not be negative");
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * количество животных, чипированных в точке локации
+     * запрос может быть выполнен только пользователями с ролью user
+     * @param id
+     * @return
+     * 200 - запрос успешно выполнен;
+     * 400 - неверные параметры запроса;
+     * 401 - неверные авторизационные данные;
+     * 404 - точка локации с id не найдена;
+     */
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/{id}/animals/count")
+    public ResponseEntity<Long> countChippedAnimals(@PathVariable Long id) throws ResponseStatusException
+    {
+        log.info("count animals chipped at location point {}", id);
+        if (checkId(id))
+        {
+            return new ResponseEntity<>(animalService.countByChippingLocation(id), HttpStatus.OK);
+        }
+        else
+        {
+            log.warn("id is mandatory and must be positive");
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * получение посещений точки локации животными
+     * запрос может быть выполнен только пользователями с ролью user
+     * постраничная выдача по ключу (keyset): следующая страница запрашивается с afterId,
+     * равным id последнего посещения, ссылка на нее передается в заголовке Link (rel="next")
+     * @param id
+     * @param afterId последний id предыдущей страницы, необязательно
+     * @param pageable размер страницы (size), не более 1000
+     * @return
+     * 200 - запрос успешно выполнен;
+     * 400 - неверные параметры запроса;
+     * 401 - неверные авторизационные данные;
+     * 404 - точка локации с id не найдена;
+     */
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/{id}/visits")
+    public ResponseEntity<List<AnimalVisitedLocationDto>> findVisits(@PathVariable Long id, @RequestParam(required = false) Long afterId, Pageable pageable) throws ResponseStatusException
+    {
+        log.info("get visits of location point {}", id);
+        if (checkId(id) && (afterId==null || afterId>=0))
+        {
+            int size = animalVisitedLocationService.pageSize(pageable.getPageSize());
+            List<AnimalVisitedLocationDto> list = animalVisitedLocationService.findByLocationPoint(id, afterId, size);
+            return new ResponseEntity<>(list, nextPageHeaders(list.size()==size ? list.get(list.size()-1).getId() : null), HttpStatus.OK);
+        }
+        else
+        {
+            log.warn("id is mandatory and must be positive, afterId must not be negative");
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * количество посещений точки локации животными
+     * запрос может быть выполнен только пользователями с ролью user
+     * @param id
+     * @return
+     * 200 - запрос успешно выполнен;
+     * 400 - неверные параметры запроса;
+     * 401 - неверные авторизационные данные;
+     * 404 - точка локации с id не найдена;
+     */
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/{id}/visits/count")
+    public ResponseEntity<Long> countVisits(@PathVariable Long id) throws ResponseStatusException
+    {
+        log.info("count visits of location point {}", id);
+        if (checkId(id))
+        {
+            return new ResponseEntity<>(animalVisitedLocationService.countByLocationPoint(id), HttpStatus.OK);
+        }
+        else
+        {
+            log.warn("id is mandatory and must be positive");
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
     /**
      * добавление точки локации животных
      * запрос может выполнять только пользователь с ролью user
@@ -85,38 +250,50 @@ public class LocationRestController {
      */
     @PreAuthorize("hasRole('ROLE_USER')")
     @PostMapping
-    public ResponseEntity<LocationPointDto> addLocationPoint(@Valid @RequestBody LocationPointDto dto, HttpServletRequest request)
+    public ResponseEntity<LocationPointDto> addLocationPoint(@Valid @RequestBody LocationPointDto dto, HttpServletRequest request) throws ResponseStatusException
     {
         log.info("adding new location point");
-        try
+        Optional<LocationPointDto> box = locationPointService.add(dto);
+        if (box.isPresent())
         {
-            Optional<LocationPointDto> box = locationPointService.add(dto);
-            if (box.isPresent())
-            {
-                log.info("adding locationPoint success");
-                return new ResponseEntity<>(box.get(), HttpStatus.CREATED);
-            }
-            else
-            {
-                log.warn("adding failed");
-                return new ResponseEntity<>(HttpStatus.NO_CONTENT);
-            }
+            log.info("adding locationPoint success");
+            return new ResponseEntity<>(box.get(), HttpStatus.CREATED);
         }
-        catch (ResponseStatusException ex)
+        else
         {
-            log.warn(ex.getMessage());
-            return new ResponseEntity<>(ex.getStatusCode());
+            log.warn("adding failed");
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
         }
     }
 
+    /**
+     * массовое добавление точек локации животных
+     * дубликаты координат в запросе и уже существующие точки не создаются повторно
+     * запрос может выполнять только пользователь с ролью user
+     * @param dto
+     * @return
+     * 200 - запрос успешно выполнен, id для каждой входной точки в порядке запроса;
+     * 400 - неверные пармметры запроса;
+     * 401 - запрос от неваторизованного акаунта, неверные авторизационные данные;
+     */
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @PostMapping("/bulk")
+    public ResponseEntity<List<LocationPointBulkResultDto>> addLocationPoints(@Valid @RequestBody LocationPointBulkDto dto)
+    {
+        log.info("bulk adding location points");
+        return new ResponseEntity<>(locationPointService.addAll(dto), HttpStatus.OK);
+    }
+
     /**
      * обновление точки локации животных
      * запрос может выполнять только пользователь с ролью user
      * @param id
      * @param dto
+     * @param ifMatch ожидаемая версия (ETag), необязательно
      * @param request
      * @return
      * 200 - запрос успешно выполнен;
+     * 412 - версия точки локации не совпадает с If-Match;
      * 400 - неверные параметры запроса;
      * 401 - запрос от неавторизованного аккаунта, неверные авторизационные данные;
      * 409 - точка локации с latitude и longitude уже существует;
@@ -124,32 +301,23 @@ public class LocationRestController {
      */
     @PreAuthorize("hasRole('ROLE_USER')")
     @PutMapping("/{id}")
-    public ResponseEntity<LocationPointDto> updateLocationPoint(@PathVariable Long id, @Valid @RequestBody LocationPointDto dto, HttpServletRequest request)
+    public ResponseEntity<LocationPointDto> updateLocationPoint(@PathVariable Long id, @Valid @RequestBody LocationPointDto dto, @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch, HttpServletRequest request) throws ResponseStatusException
     {
-        String username = (String) request.getSession().getAttribute("user");
-        log.info("username "+username);
         log.info("updating information about location point");
         if (checkId(id))
         {
-            try
+            dto.setId(id);
+            dto.setVersion(EntityTags.versionOf(ifMatch));
+            Optional<LocationPointDto> box = locationPointService.update(dto);
+            if (box.isPresent())
             {
-                dto.setId(id);
-                Optional<LocationPointDto> box = locationPointService.update(dto);
-                if (box.isPresent())
-                {
-                    log.info("updating successfully");
-                    return new ResponseEntity(box.get(), HttpStatus.OK);
-                }
-                else
-                {
-                    log.warn("updating failed");
-                    return new ResponseEntity(HttpStatus.NO_CONTENT);
-                }
+                log.info("updating successfully");
+                return new ResponseEntity(box.get(), EntityTags.headers(box.get().getVersion()), HttpStatus.OK);
             }
-            catch (ResponseStatusException ex)
+            else
             {
-                log.warn(ex.getMessage());
-                return new ResponseEntity<>(ex.getStatusCode());
+                log.warn("updating failed");
+                return new ResponseEntity(HttpStatus.NO_CONTENT);
             }
         }
         else
@@ -174,21 +342,13 @@ public class LocationRestController {
 
     @PreAuthorize("hasRole('ROLE_USER')")
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> removeLocationPoint(@PathVariable Long id, HttpServletRequest request)
+    public ResponseEntity<Void> removeLocationPoint(@PathVariable Long id, HttpServletRequest request) throws ResponseStatusException
     {
         log.info("removing location point with id "+id);
         if (checkId(id))
         {
-            try
-            {
-                locationPointService.remove(id);
-                return new ResponseEntity<>(HttpStatus.OK);
-            }
-            catch (ResponseStatusException ex)
-            {
-                log.warn(ex.getMessage());
-                return new ResponseEntity<>(ex.getStatusCode());
-            }
+            locationPointService.remove(id);
+            return new ResponseEntity<>(HttpStatus.OK);
         }
         else
         {
@@ -197,6 +357,24 @@ public class LocationRestController {
         }
     }
 
+    /**
+     * заголовок Link (rel="next") на следующую keyset-страницу
+     * @param lastId id последнего элемента полной страницы, null если страница последняя
+     * @return headers
+     */
+    private static HttpHeaders nextPageHeaders(Long lastId)
+    {
+        HttpHeaders headers = new HttpHeaders();
+        if (lastId!=null)
+        {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("afterId", lastId)
+                    .toUriString();
+            headers.add(HttpHeaders.LINK, "<"+next+">; rel=\"next\"");
+        }
+        return headers;
+    }
+
     /**
      * валидация id
      * @param id
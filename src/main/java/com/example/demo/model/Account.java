@@ -1,9 +1,13 @@
 package com.example.demo.model;
 
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import javax.persistence.*;
+import java.time.OffsetDateTime;
 import javax.validation.constraints.Email;
 import java.util.Collection;
 import java.util.HashSet;
@@ -17,6 +21,8 @@ import java.util.Set;
  */
 @Data
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "account")
 public class Account implements UserDetails {
     @Id
@@ -39,6 +45,14 @@ public class Account implements UserDetails {
     @Transient
     private Set<Role> roles = new HashSet();
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private OffsetDateTime updatedAt;
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return roles;
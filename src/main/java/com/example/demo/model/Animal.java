@@ -1,15 +1,14 @@
 package com.example.demo.model;
 
-import com.example.demo.config.AnimalTypeListConverter;
-import com.example.demo.config.AnimalVisitedLocationPointConverter;
 import lombok.Data;
+import org.hibernate.annotations.UpdateTimestamp;
 import javax.persistence.*;
-import java.util.Date;
-import java.util.List;
-import java.util.Set;
+import java.time.OffsetDateTime;
 
 /**
  * сущность Animal
+ * типы и посещенные точки хранятся id через запятую (разбор и запись через IdArrays),
+ * связанные сущности загружаются сервисами одним запросом там, где они нужны
  * @author ROMAN
  * @date 2023-02-17
  * @version 1.0
@@ -24,8 +23,7 @@ public class Animal {
     private Long id;
 
     @Column(name = "animal_types", nullable = false)
-    @Convert(converter = AnimalTypeListConverter.class)
-    private Set<AnimalType> animalTypes;
+    private String animalTypeIds;
 
     @Column(name = "weight", nullable = false)
     private Float weight;
@@ -45,22 +43,26 @@ public class Animal {
     private LifeStatus lifeStatus;
 
     @Column(name = "chipping_datetime", nullable = false)
-    @Temporal(TemporalType.DATE)
-    private Date chippingDateTime;
+    private OffsetDateTime chippingDateTime;
 
     @Column(name = "chipper_id",nullable = false)
     private  Integer chipperId;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "chipping_location_id", nullable = false)
     private LocationPoint chippingLocationId;
 
     @Column(name = "visited_locations",nullable = false)
-
-    @Convert(converter = AnimalVisitedLocationPointConverter.class)
-    private List<AnimalVisitedLocation> animalVisitedLocations;
+    private String visitedLocationIds;
 
     @Column(name = "death_datetime", nullable = true)
-    @Temporal(TemporalType.DATE)
-    private Date deathDatetime;
+    private OffsetDateTime deathDatetime;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private OffsetDateTime updatedAt;
 }
@@ -1,7 +1,11 @@
 package com.example.demo.model;
 
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.UpdateTimestamp;
 import javax.persistence.*;
+import java.time.OffsetDateTime;
 
 /**
  * сущность AnimalType
@@ -11,6 +15,8 @@ import javax.persistence.*;
  */
 @Data
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "animal_type")
 public class AnimalType {
 
@@ -20,4 +26,12 @@ public class AnimalType {
 
     @Column(name = "type", nullable = false)
     private String type;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private OffsetDateTime updatedAt;
 }
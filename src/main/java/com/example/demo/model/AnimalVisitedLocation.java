@@ -2,7 +2,7 @@ package com.example.demo.model;
 
 import lombok.Data;
 import javax.persistence.*;
-import java.util.Date;
+import java.time.OffsetDateTime;
 
 /**
  * сущность AnimalVisitedLocation
@@ -19,11 +19,10 @@ public class AnimalVisitedLocation {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "location_point", nullable = true)
     private LocationPoint locationPoint;
 
-    @Temporal(TemporalType.DATE)
     @Column(name = "datetime_of_visit_location_point", nullable = false)
-    private Date dateTimeOfVisitLocationPoint;
+    private OffsetDateTime dateTimeOfVisitLocationPoint;
 }
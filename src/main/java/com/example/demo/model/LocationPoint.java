@@ -1,8 +1,11 @@
 package com.example.demo.model;
 
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.UpdateTimestamp;
 import javax.persistence.*;
-import java.util.Set;
+import java.time.OffsetDateTime;
 
 /**
  * сущность LocationPoint
@@ -12,6 +15,8 @@ import java.util.Set;
  */
 @Data
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "location_point")
 public class LocationPoint {
 
@@ -25,9 +30,11 @@ public class LocationPoint {
     @Column(name = "longitude", nullable = false)
     private Double longitude;
 
-    @OneToMany(mappedBy = "locationPoint", fetch = FetchType.LAZY)
-    Set<AnimalVisitedLocation> locations;
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
 
-    @OneToMany(mappedBy = "chippingLocationId")
-    private Set<Animal> animals;
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private OffsetDateTime updatedAt;
 }
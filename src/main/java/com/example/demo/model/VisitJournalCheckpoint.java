@@ -0,0 +1,25 @@
+package com.example.demo.model;
+
+import lombok.Data;
+import javax.persistence.*;
+
+/**
+ * сущность VisitJournalCheckpoint
+ * последний перенесенный в базу номер записи локального журнала посещений,
+ * обновляется в той же транзакции, что и перенесенные посещения
+ * @author ROMAN
+ * @date 2023-03-12
+ * @version 1.0
+ */
+@Data
+@Entity
+@Table(name = "visit_journal_checkpoint")
+public class VisitJournalCheckpoint {
+
+    @Id
+    @Column(name = "journal_id", nullable = false)
+    private String journalId;
+
+    @Column(name = "applied_sequence", nullable = false)
+    private Long appliedSequence;
+}
@@ -1,10 +1,14 @@
 package com.example.demo.repository;
 
 import com.example.demo.model.Account;
+import com.example.demo.repository.projection.AccountView;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
+import javax.persistence.QueryHint;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -16,8 +20,21 @@ import java.util.Optional;
 @Repository
 public interface AccountRepository extends PagingAndSortingRepository<Account, Integer> {
 
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
     Optional<Account> findByEmail(String email);
 
+    boolean existsByEmail(String email);
+
+    Optional<AccountView> findViewById(Integer id);
+
+    /**
+     * keyset-страница аккаунтов с id больше afterId, упорядоченная по id
+     * @param afterId последний id предыдущей страницы
+     * @param pageable размер страницы, номер страницы не используется
+     * @return list of AccountView
+     */
+    List<AccountView> findByIdGreaterThanOrderByIdAsc(Integer afterId, Pageable pageable);
+
 
     Page<Account> findByFirstNameContainingAndLastNameContainingAndEmailContaining(String firstName, String lastName, String email, Pageable pageable);
 
@@ -3,12 +3,22 @@ package com.example.demo.repository;
 import com.example.demo.model.Animal;
 import com.example.demo.model.Gender;
 import com.example.demo.model.LifeStatus;
+import com.example.demo.repository.projection.AnimalView;
+import com.example.demo.repository.projection.VersionView;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.util.Date;
+import javax.persistence.LockModeType;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -18,14 +28,102 @@ import java.util.Optional;
  * @version 1.0
  */
 @Repository
-public interface AnimalRepository extends PagingAndSortingRepository<Animal, Long> {
+public interface AnimalRepository extends JpaRepository<Animal, Long> {
+
+
+    String VIEW_SELECT = "select a.id as id, a.animalTypeIds as animalTypeIds, a.weight as weight, a.height as height, a.length as length, " +
+            "a.gender as gender, a.lifeStatus as lifeStatus, a.chippingDateTime as chippingDateTime, a.chipperId as chipperId, " +
+            "a.chippingLocationId.id as chippingLocationId, a.visitedLocationIds as visitedLocationIds, a.deathDatetime as deathDatetime, " +
+            "a.version as version, a.updatedAt as updatedAt from Animal a";
+
+    /**
+     * животное по id в виде проекции, без загрузки сущности
+     * @param id
+     * @return AnimalView or null
+     */
+    @Query(VIEW_SELECT + " where a.id = :id")
+    Optional<AnimalView> findViewById(@Param("id") Long id);
+
+    /**
+     * животные по списку id в виде проекций, одним запросом
+     * @param ids
+     * @return list of AnimalView in undefined order
+     */
+    @Query(VIEW_SELECT + " where a.id in :ids")
+    List<AnimalView> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * страница животных в виде проекций
+     * @param pageable
+     * @return page of AnimalView
+     */
+    @Query(value = VIEW_SELECT, countQuery = "select count(a) from Animal a")
+    Page<AnimalView> findAllViews(Pageable pageable);
+
+    /**
+     * поиск животных по параметрам в виде проекций
+     * @param startDate
+     * @param endDate
+     * @param chipperId
+     * @param chippingLocationId
+     * @param lifeStatus
+     * @param gender
+     * @param pageable
+     * @return page of AnimalView
+     */
+    @Query(value = VIEW_SELECT + " where a.chippingDateTime > :startDate and a.chippingDateTime < :endDate and a.chipperId = :chipperId " +
+            "and a.chippingLocationId.id = :chippingLocationId and a.lifeStatus = :lifeStatus and a.gender = :gender",
+            countQuery = "select count(a) from Animal a where a.chippingDateTime > :startDate and a.chippingDateTime < :endDate and a.chipperId = :chipperId " +
+            "and a.chippingLocationId.id = :chippingLocationId and a.lifeStatus = :lifeStatus and a.gender = :gender")
+    Page<AnimalView> searchViews(@Param("startDate") OffsetDateTime startDate, @Param("endDate") OffsetDateTime endDate, @Param("chipperId") Integer chipperId, @Param("chippingLocationId") Long chippingLocationId, @Param("lifeStatus") LifeStatus lifeStatus, @Param("gender") Gender gender, Pageable pageable);
+
+    /**
+     * keyset-страница животных, чипированных в точке локации, упорядоченная по id
+     * @param chippingLocationId
+     * @param afterId последний id предыдущей страницы
+     * @param pageable размер страницы, номер страницы не используется
+     * @return list of AnimalView
+     */
+    @Query(VIEW_SELECT + " where a.chippingLocationId.id = :chippingLocationId and a.id > :afterId order by a.id")
+    List<AnimalView> findViewsByChippingLocation(@Param("chippingLocationId") Long chippingLocationId, @Param("afterId") Long afterId, Pageable pageable);
+
+    long countByChippingLocationId_Id(Long id);
+
+    /**
+     * есть ли животное, чипированное в точке локации (проверка через индекс, без загрузки сущности)
+     * @param id
+     * @return boolean
+     */
+    boolean existsByChippingLocationId_Id(Long id);
 
+    /**
+     * есть ли животное, чипированное аккаунтом
+     * @param id
+     * @return boolean
+     */
+    boolean existsByChipperId(Integer id);
 
-    Page<Animal> findByChippingDateTimeAfterAndChippingDateTimeBeforeAndChipperIdAndChippingLocationId_IdAndLifeStatusAndGender(Date startDate, Date endDate, Integer chipperId, Long chippingLocationId, LifeStatus lifeStatus, Gender gender, Pageable pageable);
+    Optional<VersionView> findVersionById(Long id);
 
-    Optional<Animal> findByChippingLocationId_Id(Long id);
+    /**
+     * загрузка животного вместе с точкой чипирования одним запросом
+     * @param id
+     * @return Animal or null
+     */
+    @Override
+    @EntityGraph(attributePaths = "chippingLocationId")
+    Optional<Animal> findById(Long id);
 
-    Optional<Animal> findByChipperId(Integer id);
+    /**
+     * загрузка животного с принудительным увеличением версии при фиксации транзакции,
+     * чтобы конкурентные изменения списка посещенных точек не перезаписывали друг друга
+     * @param id
+     * @return Animal or null
+     */
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @EntityGraph(attributePaths = "chippingLocationId")
+    @Query("select a from Animal a where a.id = :id")
+    Optional<Animal> findForUpdateById(@Param("id") Long id);
     
     
     
@@ -1,9 +1,11 @@
 package com.example.demo.repository;
 
 import com.example.demo.model.AnimalType;
+import com.example.demo.repository.projection.VersionView;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
-
+import javax.persistence.QueryHint;
 import java.util.Optional;
 
 /**
@@ -15,5 +17,10 @@ import java.util.Optional;
 @Repository
 public interface AnimalTypeRepository extends JpaRepository<AnimalType, Long> {
 
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
     Optional<AnimalType> findByType(String type);
+
+    boolean existsByType(String type);
+
+    Optional<VersionView> findVersionById(Long id);
 }
@@ -1,10 +1,15 @@
 package com.example.demo.repository;
 
+import com.example.demo.config.IdArrays;
 import com.example.demo.model.AnimalVisitedLocation;
-import com.example.demo.model.LocationPoint;
+import com.example.demo.repository.projection.AnimalVisitedLocationView;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
-import java.util.Optional;
+import java.util.*;
 
 /**
  * репозиторий для сущности AnimalVisitedLocations
@@ -15,6 +20,61 @@ import java.util.Optional;
 @Repository
 public interface AnimalVisitedLocationRepository extends PagingAndSortingRepository<AnimalVisitedLocation, Long> {
 
-    Optional<LocationPoint> findByLocationPoint_Id(Long id);
+    boolean existsByLocationPoint_Id(Long id);
+
+    /**
+     * keyset-страница посещений точки локации, упорядоченная по id
+     * @param locationPointId
+     * @param afterId последний id предыдущей страницы
+     * @param pageable размер страницы, номер страницы не используется
+     * @return list of AnimalVisitedLocationView
+     */
+    @Query("select v.id as id, v.locationPoint.id as locationPointId, v.dateTimeOfVisitLocationPoint as dateTimeOfVisitLocationPoint " +
+            "from AnimalVisitedLocation v where v.locationPoint.id = :locationPointId and v.id > :afterId order by v.id")
+    List<AnimalVisitedLocationView> findViewsByLocationPoint(@Param("locationPointId") Long locationPointId, @Param("afterId") Long afterId, Pageable pageable);
+
+    long countByLocationPoint_Id(Long id);
+
+    /**
+     * загрузка посещенной точки вместе с точкой локации одним запросом
+     * @param id
+     * @return AnimalVisitedLocation or null
+     */
+    @Override
+    @EntityGraph(attributePaths = "locationPoint")
+    Optional<AnimalVisitedLocation> findById(Long id);
+
+    /**
+     * загрузка посещенных точек вместе с точками локации одним запросом
+     * @param ids
+     * @return list of AnimalVisitedLocation in any order
+     */
+    @EntityGraph(attributePaths = "locationPoint")
+    List<AnimalVisitedLocation> findByIdIn(Collection<Long> ids);
+
+    /**
+     * посещенные точки из столбца visited_locations животного в порядке ids, отсутствующие id пропускаются
+     * @param ids
+     * @return modifiable list of AnimalVisitedLocation
+     */
+    default List<AnimalVisitedLocation> findAllInOrder(long[] ids)
+    {
+        if (ids.length==0)
+        {
+            return new ArrayList();
+        }
+        Map<Long, AnimalVisitedLocation> found = new HashMap(ids.length*2);
+        findByIdIn(IdArrays.boxed(ids)).forEach(location->found.put(location.getId(), location));
+        List<AnimalVisitedLocation> list = new ArrayList(ids.length);
+        for (long id: ids)
+        {
+            AnimalVisitedLocation location = found.get(id);
+            if (location!=null)
+            {
+                list.add(location);
+            }
+        }
+        return list;
+    }
 
 }
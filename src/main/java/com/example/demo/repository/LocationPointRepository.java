@@ -1,8 +1,12 @@
 package com.example.demo.repository;
 
 import com.example.demo.model.LocationPoint;
+import com.example.demo.repository.projection.LocationPointView;
+import com.example.demo.repository.projection.VersionView;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import javax.persistence.QueryHint;
 import java.util.Optional;
 
 /**
@@ -14,6 +18,13 @@ import java.util.Optional;
 @Repository
 public interface LocationPointRepository extends JpaRepository<LocationPoint, Long> {
 
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
     Optional<LocationPoint> findByLatitudeAndLongitude(Double latitude, Double longitude);
 
+    boolean existsByLatitudeAndLongitude(Double latitude, Double longitude);
+
+    Optional<VersionView> findVersionById(Long id);
+
+    Optional<LocationPointView> findViewById(Long id);
+
 }
@@ -0,0 +1,16 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.VisitJournalCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * репозиторий для сущности VisitJournalCheckpoint
+ * @author ROMAN
+ * @date 2023-03-12
+ * @version 1.0
+ */
+@Repository
+public interface VisitJournalCheckpointRepository extends JpaRepository<VisitJournalCheckpoint, String> {
+
+}
@@ -0,0 +1,19 @@
+package com.example.demo.repository.projection;
+
+/**
+ * проекция аккаунта для выдачи списков
+ * выбирает только id, имя, фамилию и email, без хеша пароля
+ * @author ROMAN
+ * @date 2023-03-03
+ * @version 1.0
+ */
+public interface AccountView {
+
+    Integer getId();
+
+    String getFirstName();
+
+    String getLastName();
+
+    String getEmail();
+}
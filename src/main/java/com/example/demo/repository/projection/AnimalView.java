@@ -0,0 +1,44 @@
+package com.example.demo.repository.projection;
+
+import com.example.demo.model.Gender;
+import com.example.demo.model.LifeStatus;
+import java.time.OffsetDateTime;
+
+/**
+ * проекция животного для запросов только на чтение
+ * типы и посещенные точки выбираются как исходные строки id через запятую,
+ * поэтому связь с LocationPoint не загружается
+ * @author ROMAN
+ * @date 2023-03-04
+ * @version 1.0
+ */
+public interface AnimalView {
+
+    Long getId();
+
+    String getAnimalTypeIds();
+
+    Float getWeight();
+
+    Float getHeight();
+
+    Float getLength();
+
+    Gender getGender();
+
+    LifeStatus getLifeStatus();
+
+    OffsetDateTime getChippingDateTime();
+
+    Integer getChipperId();
+
+    Long getChippingLocationId();
+
+    String getVisitedLocationIds();
+
+    OffsetDateTime getDeathDatetime();
+
+    Long getVersion();
+
+    OffsetDateTime getUpdatedAt();
+}
@@ -0,0 +1,18 @@
+package com.example.demo.repository.projection;
+
+import java.time.OffsetDateTime;
+
+/**
+ * проекция посещенной точки локации для запросов только на чтение
+ * @author ROMAN
+ * @date 2023-03-09
+ * @version 1.0
+ */
+public interface AnimalVisitedLocationView {
+
+    Long getId();
+
+    Long getLocationPointId();
+
+    OffsetDateTime getDateTimeOfVisitLocationPoint();
+}
@@ -0,0 +1,22 @@
+package com.example.demo.repository.projection;
+
+import java.time.OffsetDateTime;
+
+/**
+ * проекция точки локации для запросов только на чтение
+ * @author ROMAN
+ * @date 2023-03-04
+ * @version 1.0
+ */
+public interface LocationPointView {
+
+    Long getId();
+
+    Double getLatitude();
+
+    Double getLongitude();
+
+    Long getVersion();
+
+    OffsetDateTime getUpdatedAt();
+}
@@ -0,0 +1,17 @@
+package com.example.demo.repository.projection;
+
+import java.time.OffsetDateTime;
+
+/**
+ * проекция версии сущности для условных запросов (ETag, Last-Modified)
+ * выбирает только столбцы version и updated_at без загрузки самой сущности
+ * @author ROMAN
+ * @date 2023-03-02
+ * @version 1.0
+ */
+public interface VersionView {
+
+    Long getVersion();
+
+    OffsetDateTime getUpdatedAt();
+}
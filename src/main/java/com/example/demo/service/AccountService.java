@@ -19,10 +19,21 @@ import java.util.Optional;
 public interface AccountService {
 
     /**
-     * возвращает все аккаунты
+     * возвращает keyset-страницу аккаунтов, упорядоченную по id
+     * размер страницы ограничен сверху 1000 записями
+     * @param afterId последний id предыдущей страницы, null для первой страницы
+     * @param size
      * @return list of AccountViewDto or empty list
      */
-    List<AccountViewDto> findAll();
+    List<AccountViewDto> findAll(Integer afterId, int size);
+
+    /**
+     * действующий размер keyset-страницы findAll для запрошенного размера (от 1 до 1000);
+     * страница такого размера может быть не последней
+     * @param size
+     * @return page size
+     */
+    int pageSize(int size);
 
     /**
      * выполняет поиск аккаунта по параметрам
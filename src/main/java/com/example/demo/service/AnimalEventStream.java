@@ -0,0 +1,55 @@
+package com.example.demo.service;
+
+import com.example.demo.config.ResponseStatusException;
+import com.example.demo.model.Animal;
+import com.example.demo.model.AnimalVisitedLocation;
+import com.example.demo.model.LocationPoint;
+import com.example.demo.repository.projection.AnimalView;
+import com.example.demo.service.dto.AnimalEventFilterDto;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * лента событий животных (Server-Sent Events)
+ * события публикуются изнутри транзакции записи и рассылаются подписчикам только после ее фиксации;
+ * без подписчиков публикация ничего не делает
+ * @author ROMAN
+ * @date 2023-03-13
+ * @version 1.0
+ */
+public interface AnimalEventStream {
+
+    /**
+     * добавлена посещенная точка
+     * @param animal
+     * @param visit
+     */
+    void visited(Animal animal, AnimalVisitedLocation visit);
+
+    /**
+     * добавлена посещенная точка при пакетной записи, животное передается проекцией без загрузки сущности
+     * @param animal
+     * @param visit
+     */
+    void visited(AnimalView animal, AnimalVisitedLocation visit);
+
+    /**
+     * чипировано новое животное
+     * @param animal
+     */
+    void chipped(Animal animal);
+
+    /**
+     * изменен lifeStatus животного
+     * @param animal
+     * @param point точка, в которой находится животное (последняя посещенная или точка чипирования)
+     */
+    void lifeStatusChanged(Animal animal, LocationPoint point);
+
+    /**
+     * подписка на ленту
+     * @param filter
+     * @return emitter
+     * @throws ResponseStatusException 400 - неверный фильтр, 503 - превышено число подписчиков
+     */
+    SseEmitter subscribe(AnimalEventFilterDto filter) throws ResponseStatusException;
+}
@@ -2,8 +2,12 @@ package com.example.demo.service;
 
 
 import com.example.demo.config.ResponseStatusException;
+import com.example.demo.repository.projection.VersionView;
 import com.example.demo.service.dto.AnimalDto;
+import com.example.demo.service.dto.MultiGetResultDto;
 import com.example.demo.service.dto.AnimalSearchDto;
+import com.example.demo.service.dto.AnimalTypeBulkDto;
+import com.example.demo.service.dto.AnimalTypeBulkResultDto;
 import com.example.demo.service.dto.AnimalTypeUpdateDto;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -26,6 +30,21 @@ public interface AnimalService {
      */
     Optional<AnimalDto> findById(Long id);
 
+    /**
+     * получение версии животного по id без загрузки сущности
+     * @param id
+     * @return VersionView or null
+     */
+    Optional<VersionView> findVersionById(Long id);
+
+    /**
+     * получение животных по списку id
+     * @param ids
+     * @return results in request order, found = false for missing ids
+     * @throws ResponseStatusException 400 - список пуст, длиннее 1000 или содержит неположительный id
+     */
+    List<MultiGetResultDto<AnimalDto>> findAllById(long[] ids) throws ResponseStatusException;
+
     /**
      * поиск животных по параметрам
      * @param dto
@@ -35,6 +54,33 @@ public interface AnimalService {
      */
     List<AnimalDto> search(AnimalSearchDto dto, Pageable pageable) throws ResponseStatusException;
 
+    /**
+     * keyset-страница животных, чипированных в точке локации, упорядоченная по id
+     * размер страницы ограничен сверху 1000 записями
+     * @param locationPointId
+     * @param afterId последний id предыдущей страницы, null для первой страницы
+     * @param size
+     * @return list of AnimalDto or empty list
+     * @throws ResponseStatusException
+     */
+    List<AnimalDto> findByChippingLocation(Long locationPointId, Long afterId, int size) throws ResponseStatusException;
+
+    /**
+     * действующий размер keyset-страницы findByChippingLocation для запрошенного размера (от 1 до 1000);
+     * страница такого размера может быть не последней
+     * @param size
+     * @return page size
+     */
+    int pageSize(int size);
+
+    /**
+     * количество животных, чипированных в точке локации
+     * @param locationPointId
+     * @return count
+     * @throws ResponseStatusException
+     */
+    long countByChippingLocation(Long locationPointId) throws ResponseStatusException;
+
     /**
      * добавление нового животного
      * @param dto
@@ -85,4 +131,14 @@ public interface AnimalService {
      */
     Optional<AnimalDto> removeAnimalTypeForAnimal(Long animalId, Long typeId) throws ResponseStatusException;
 
+    /**
+     * массовое добавление и удаление типов у множества животных
+     * изменения применяются порциями одним SQL запросом на порцию, каждая порция фиксируется
+     * в собственной транзакции, поэтому блокировки строк не удерживаются до конца всего запроса;
+     * при ошибке в порции уже зафиксированные порции остаются примененными
+     * @param dto
+     * @return result for each requested animal
+     * @throws ResponseStatusException
+     */
+    List<AnimalTypeBulkResultDto> updateAnimalTypes(AnimalTypeBulkDto dto) throws ResponseStatusException;
 }
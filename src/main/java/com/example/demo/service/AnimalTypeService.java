@@ -1,8 +1,11 @@
 package com.example.demo.service;
 
 import com.example.demo.config.ResponseStatusException;
+import com.example.demo.repository.projection.VersionView;
 import com.example.demo.service.dto.AnimalTypeDto;
+import com.example.demo.service.dto.MultiGetResultDto;
 import org.springframework.stereotype.Service;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -21,6 +24,21 @@ public interface AnimalTypeService {
      */
     Optional<AnimalTypeDto> findById(Long id);
 
+    /**
+     * получение версии типа животного по id без загрузки сущности
+     * @param id
+     * @return VersionView or null
+     */
+    Optional<VersionView> findVersionById(Long id);
+
+    /**
+     * получение типов животных по списку id
+     * @param ids
+     * @return results in request order, found = false for missing ids
+     * @throws ResponseStatusException 400 - список пуст, длиннее 1000 или содержит неположительный id
+     */
+    List<MultiGetResultDto<AnimalTypeDto>> findAllById(long[] ids) throws ResponseStatusException;
+
     /**
      * добавление типа животного
      * @param dto
@@ -23,7 +23,7 @@ public interface AnimalVisitedLocationService {
      * @param id
      * @param dto
      * @param pageable
-     * @return list of AnimalVisitedLocationDto or empty list
+     * @return list of AnimalVisitedLocationDto in visit order or empty list
      * @throws ResponseStatusException
      */
     List<AnimalVisitedLocationDto> findAll(Long id, AnimalVisitedLocationSearchDto dto, Pageable pageable) throws ResponseStatusException;
@@ -35,6 +35,41 @@ public interface AnimalVisitedLocationService {
      */
     Optional<AnimalVisitedLocationDto> findById(Long id);
 
+    /**
+     * keyset-страница посещений точки локации, упорядоченная по id
+     * размер страницы ограничен сверху 1000 записями
+     * @param locationPointId
+     * @param afterId последний id предыдущей страницы, null для первой страницы
+     * @param size
+     * @return list of AnimalVisitedLocationDto or empty list
+     * @throws ResponseStatusException
+     */
+    List<AnimalVisitedLocationDto> findByLocationPoint(Long locationPointId, Long afterId, int size) throws ResponseStatusException;
+
+    /**
+     * действующий размер keyset-страницы findByLocationPoint для запрошенного размера (от 1 до 1000);
+     * страница такого размера может быть не последней
+     * @param size
+     * @return page size
+     */
+    int pageSize(int size);
+
+    /**
+     * проверка существования животного и точки локации перед записью добавления в журнал
+     * @param animalId
+     * @param pointId
+     * @throws ResponseStatusException 404 - животное или точка локации не найдены
+     */
+    void checkExists(Long animalId, Long pointId) throws ResponseStatusException;
+
+    /**
+     * количество посещений точки локации
+     * @param locationPointId
+     * @return count
+     * @throws ResponseStatusException
+     */
+    long countByLocationPoint(Long locationPointId) throws ResponseStatusException;
+
     /**
      * добавление новой точки локации, посещенной животным
      * @param animalId
@@ -1,8 +1,13 @@
 package com.example.demo.service;
 
 import com.example.demo.config.ResponseStatusException;
+import com.example.demo.repository.projection.VersionView;
+import com.example.demo.service.dto.LocationPointBulkDto;
+import com.example.demo.service.dto.LocationPointBulkResultDto;
 import com.example.demo.service.dto.LocationPointDto;
+import com.example.demo.service.dto.MultiGetResultDto;
 import org.springframework.stereotype.Service;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -21,6 +26,21 @@ public interface LocationPointService {
      */
     Optional<LocationPointDto> findById(Long id);
 
+    /**
+     * получение версии точки локации по id без загрузки сущности
+     * @param id
+     * @return VersionView or null
+     */
+    Optional<VersionView> findVersionById(Long id);
+
+    /**
+     * получение точек локации по списку id
+     * @param ids
+     * @return results in request order, found = false for missing ids
+     * @throws ResponseStatusException 400 - список пуст, длиннее 1000 или содержит неположительный id
+     */
+    List<MultiGetResultDto<LocationPointDto>> findAllById(long[] ids) throws ResponseStatusException;
+
     /**
      * добавление точки локации
      * @param dto
@@ -44,4 +64,11 @@ public interface LocationPointService {
      */
     void remove(Long id) throws ResponseStatusException;
 
+    /**
+     * массовое добавление точек локации с удалением дубликатов в запросе и в таблице
+     * каждая порция фиксируется в собственной транзакции, при ошибке зафиксированные порции остаются
+     * @param dto
+     * @return id for every input point in input order
+     */
+    List<LocationPointBulkResultDto> addAll(LocationPointBulkDto dto);
 }
@@ -0,0 +1,25 @@
+package com.example.demo.service;
+
+import com.example.demo.service.dto.AnimalVisitedLocationDto;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * очередь отложенной записи посещенных точек локации (write-behind)
+ * добавления накапливаются в памяти и фиксируются пакетами в одной транзакции,
+ * результат завершается только после фиксации пакета
+ * включается свойством animal.visits.write-behind.enabled=true
+ * @author ROMAN
+ * @date 2023-03-11
+ * @version 1.0
+ */
+public interface VisitAppendQueue {
+
+    /**
+     * постановка добавления в очередь
+     * @param animalId
+     * @param pointId
+     * @return future с сохраненной посещенной точкой или ResponseStatusException
+     * (400/404 - нарушены правила добавления, 503 - очередь переполнена или остановлена)
+     */
+    CompletableFuture<AnimalVisitedLocationDto> submit(Long animalId, Long pointId);
+}
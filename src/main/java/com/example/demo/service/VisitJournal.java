@@ -0,0 +1,32 @@
+package com.example.demo.service;
+
+import com.example.demo.config.ResponseStatusException;
+
+/**
+ * локальный журнал добавлений посещенных точек локации (append-only, на диске)
+ * добавление подтверждается после записи в журнал и сброса на диск, а в базу переносится
+ * фоновым потоком, как только она доступна; перенос идемпотентен, так как номер последней
+ * перенесенной записи фиксируется в той же транзакции
+ * правила добавления проверяются при переносе, отклоненные записи только журналируются
+ * включается свойством animal.visits.journal.enabled=true
+ * @author ROMAN
+ * @date 2023-03-12
+ * @version 1.0
+ */
+public interface VisitJournal {
+
+    /**
+     * запись добавления в журнал
+     * @param animalId
+     * @param pointId
+     * @return номер записи в журнале
+     * @throws ResponseStatusException 503 - журнал остановлен или недоступен для записи
+     */
+    long append(Long animalId, Long pointId) throws ResponseStatusException;
+
+    /**
+     * доступность базы по последней попытке переноса
+     * @return false после ошибки доступа к базе до следующего успешного переноса
+     */
+    boolean isDatabaseAvailable();
+}
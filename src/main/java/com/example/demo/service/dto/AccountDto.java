@@ -1,5 +1,6 @@
 package com.example.demo.service.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -35,6 +36,9 @@ public class AccountDto {
     @NotEmpty(message = "password is mandatory")
     private String password;
 
+    @JsonIgnore
+    private Long version;
+
     public AccountDto(String firstName, String lastName, String email) {
         this.firstName = firstName;
         this.lastName = lastName;
@@ -1,20 +1,22 @@
 package com.example.demo.service.dto;
 
+import com.example.demo.config.IdArrayDeserializer;
 import com.example.demo.model.Gender;
 import com.example.demo.model.LifeStatus;
-import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
-import java.util.Date;
-import java.util.List;
-import java.util.Set;
+import java.time.OffsetDateTime;
 
 /**
  * dto класс Animal
+ * id типов и посещенных точек хранятся в long[], Jackson пишет их как JSON массив без упаковки в Long,
+ * читает IdArrayDeserializer (только целые числа)
  * @author ROMAN
  * @date 2023-02-17
  * @version 1.0
@@ -27,8 +29,9 @@ public class AnimalDto {
     private Long id;
 
     @JsonProperty
+    @JsonDeserialize(using = IdArrayDeserializer.class)
     //@NotNull(message = "animal must be have type")
-    private Set<Long> animalTypes;
+    private long[] animalTypes;
 
     @JsonProperty
     @NotNull(message = "weight is mandatory")
@@ -54,9 +57,8 @@ public class AnimalDto {
     private LifeStatus lifeStatus;
 
     @JsonProperty
-    //@JsonFormat(pattern = "yyyy-MM-dd")
-    @DateTimeFormat(pattern = "yyyy-MM-dd")
-    private Date chippingDateTime;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private OffsetDateTime chippingDateTime;
 
     @JsonProperty
     @NotNull(message = "chipperId is mandatory")
@@ -69,11 +71,18 @@ public class AnimalDto {
     private Long chippingLocationId;
 
     @JsonProperty(value = "visitedLocations")
-    private List<Long> visitedLocations;
+    @JsonDeserialize(using = IdArrayDeserializer.class)
+    private long[] visitedLocations;
 
 
     @JsonProperty
-    @DateTimeFormat(pattern = "yyyy-MM-dd")
-    private Date deathDateTime;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private OffsetDateTime deathDateTime;
+
+    @JsonIgnore
+    private Long version;
+
+    @JsonIgnore
+    private OffsetDateTime updatedAt;
 
 }
@@ -0,0 +1,56 @@
+package com.example.demo.service.dto;
+
+import com.example.demo.model.LifeStatus;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.OffsetDateTime;
+
+/**
+ * dto класс события ленты /animals/stream
+ * точка локации - место события: посещенная точка, точка чипирования
+ * или последняя посещенная точка при изменении lifeStatus
+ * @author ROMAN
+ * @date 2023-03-13
+ * @version 1.0
+ */
+@NoArgsConstructor
+@Data
+public class AnimalEventDto {
+
+    @JsonProperty
+    private Long eventId;
+
+    @JsonProperty
+    private Type type;
+
+    @JsonProperty
+    private Long animalId;
+
+    @JsonProperty
+    private long[] animalTypes;
+
+    @JsonProperty
+    private LifeStatus lifeStatus;
+
+    @JsonProperty
+    private Long locationPointId;
+
+    @JsonProperty
+    private Double latitude;
+
+    @JsonProperty
+    private Double longitude;
+
+    @JsonProperty
+    private Long visitedLocationId;
+
+    @JsonProperty
+    private OffsetDateTime dateTime;
+
+    public enum Type {
+        VISITED,
+        LIFE_STATUS_CHANGED,
+        CHIPPED
+    }
+}
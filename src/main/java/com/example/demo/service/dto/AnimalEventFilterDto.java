@@ -0,0 +1,33 @@
+package com.example.demo.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+/**
+ * dto класс фильтра подписки на ленту /animals/stream
+ * незаданные условия не ограничивают ленту; прямоугольник задается всеми четырьмя границами
+ * @author ROMAN
+ * @date 2023-03-13
+ * @version 1.0
+ */
+@Data
+public class AnimalEventFilterDto {
+
+    @JsonProperty
+    private long[] animalIds;
+
+    @JsonProperty
+    private Long typeId;
+
+    @JsonProperty
+    private Double minLatitude;
+
+    @JsonProperty
+    private Double maxLatitude;
+
+    @JsonProperty
+    private Double minLongitude;
+
+    @JsonProperty
+    private Double maxLongitude;
+}
@@ -0,0 +1,24 @@
+package com.example.demo.service.dto;
+
+import com.example.demo.model.LocationPoint;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * связанные сущности животного, проверенные сервисом при разборе запроса на создание или изменение
+ * передаются в маппер, который сам ничего не загружает; типы и посещенные точки передаются id,
+ * null означает пустой список
+ * @author ROMAN
+ * @date 2023-03-08
+ * @version 1.0
+ */
+@NoArgsConstructor
+@Data
+public class AnimalReferences {
+
+    private long[] animalTypeIds;
+
+    private LocationPoint chippingLocation;
+
+    private long[] visitedLocationIds;
+}
@@ -0,0 +1,45 @@
+package com.example.demo.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * dto класс для массового изменения типов у множества животных
+ * @author ROMAN
+ * @date 2023-03-09
+ * @version 1.0
+ */
+@Data
+public class AnimalTypeBulkDto {
+
+    @JsonProperty
+    @NotEmpty(message = "animalIds is mandatory")
+    private List<@NotNull @Positive Long> animalIds;
+
+    @JsonProperty
+    @NotNull(message = "add must not be null")
+    private Set<@NotNull @Positive Long> add = new HashSet();
+
+    @JsonProperty
+    @NotNull(message = "remove must not be null")
+    private Set<@NotNull @Positive Long> remove = new HashSet();
+
+    /**
+     * запрос должен добавлять или удалять хотя бы один тип
+     * @return true if add or remove is not empty
+     */
+    @JsonIgnore
+    @AssertTrue(message = "add or remove must contain at least one animalType")
+    public boolean isChanging()
+    {
+        return (add!=null && !add.isEmpty()) || (remove!=null && !remove.isEmpty());
+    }
+}
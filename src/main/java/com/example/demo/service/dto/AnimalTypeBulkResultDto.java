@@ -0,0 +1,31 @@
+package com.example.demo.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * dto класс результата массового изменения типов для одного животного
+ * @author ROMAN
+ * @date 2023-03-09
+ * @version 1.0
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class AnimalTypeBulkResultDto {
+
+    /**
+     * UPDATED - типы изменены;
+     * NOT_FOUND - животное не найдено;
+     * NO_TYPES_LEFT - после удаления у животного не осталось типов, изменения не применены;
+     */
+    public enum Status { UPDATED, NOT_FOUND, NO_TYPES_LEFT }
+
+    @JsonProperty
+    private Long animalId;
+
+    @JsonProperty
+    private Status status;
+}
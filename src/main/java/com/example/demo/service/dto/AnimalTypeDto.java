@@ -1,9 +1,11 @@
 package com.example.demo.service.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import javax.validation.constraints.NotEmpty;
+import java.time.OffsetDateTime;
 
 /**
  * dto класс AnimalType
@@ -22,4 +24,10 @@ public class AnimalTypeDto {
     @NotEmpty(message = "type is mandatory")
     private String type;
 
+    @JsonIgnore
+    private Long version;
+
+    @JsonIgnore
+    private OffsetDateTime updatedAt;
+
 }
@@ -7,7 +7,7 @@ import org.springframework.format.annotation.DateTimeFormat;
 
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
-import java.util.Date;
+import java.time.OffsetDateTime;
 
 /**
  * dto класс AnimalVisitedLocation
@@ -29,8 +29,8 @@ public class AnimalVisitedLocationDto {
 
     @JsonProperty
     @NotNull(message = "dateTimeOfVisitLocationPoint is mandatory")
-    @DateTimeFormat(pattern = "yyyy-MM-dd")
-    private Date dateTimeOfVisitLocationPoint;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private OffsetDateTime dateTimeOfVisitLocationPoint;
 
 
 
@@ -0,0 +1,23 @@
+package com.example.demo.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+/**
+ * dto класс для массового добавления точек локации
+ * @author ROMAN
+ * @date 2023-03-10
+ * @version 1.0
+ */
+@Data
+public class LocationPointBulkDto {
+
+    @JsonProperty
+    @NotEmpty(message = "points is mandatory")
+    @Size(max = 100000, message = "points: max size is 100000")
+    private List<@Valid LocationPointDto> points;
+}
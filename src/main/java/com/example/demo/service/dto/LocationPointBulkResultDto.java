@@ -0,0 +1,31 @@
+package com.example.demo.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * dto класс результата массового добавления для одной входной точки локации
+ * created = false, если точка с такими координатами уже существовала или встретилась в запросе раньше
+ * @author ROMAN
+ * @date 2023-03-10
+ * @version 1.0
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class LocationPointBulkResultDto {
+
+    @JsonProperty
+    private Long id;
+
+    @JsonProperty
+    private Double latitude;
+
+    @JsonProperty
+    private Double longitude;
+
+    @JsonProperty
+    private Boolean created;
+}
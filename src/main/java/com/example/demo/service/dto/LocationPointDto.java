@@ -1,8 +1,10 @@
 package com.example.demo.service.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
 import javax.validation.constraints.*;
+import java.time.OffsetDateTime;
 
 /**
  * dto класс LocationPoint
@@ -29,4 +31,10 @@ public class LocationPointDto {
     @Max(value = 180, message = "longitude: max value is 180")
     private Double longitude;
 
+    @JsonIgnore
+    private Long version;
+
+    @JsonIgnore
+    private OffsetDateTime updatedAt;
+
 }
@@ -0,0 +1,28 @@
+package com.example.demo.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * dto класс результата множественного получения для одного запрошенного id
+ * found = false и value = null, если сущность с таким id не найдена
+ * @author ROMAN
+ * @date 2023-03-14
+ * @version 1.0
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class MultiGetResultDto<T> {
+
+    @JsonProperty
+    private Long id;
+
+    @JsonProperty
+    private Boolean found;
+
+    @JsonProperty
+    private T value;
+}
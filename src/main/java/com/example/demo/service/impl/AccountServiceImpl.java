@@ -1,10 +1,11 @@
 package com.example.demo.service.impl;
 
+import com.example.demo.config.CacheInvalidationBus;
 import com.example.demo.config.ResponseStatusException;
 import com.example.demo.model.Account;
-import com.example.demo.model.Animal;
 import com.example.demo.repository.AccountRepository;
 import com.example.demo.repository.AnimalRepository;
+import com.example.demo.repository.projection.AccountView;
 import com.example.demo.service.AccountService;
 import com.example.demo.service.dto.AccountDto;
 import com.example.demo.service.dto.AccountViewDto;
@@ -37,6 +38,8 @@ import java.util.regex.Pattern;
 public class AccountServiceImpl implements AccountService {
 
 
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final AccountRepository accountRepository;
 
     private final AnimalRepository animalRepository;
@@ -45,24 +48,34 @@ public class AccountServiceImpl implements AccountService {
 
     private final AccountMapper accountMapper;
 
+    private final CacheInvalidationBus cacheInvalidationBus;
+
     @Autowired
-    public AccountServiceImpl(AccountRepository accountRepository, AnimalRepository animalRepository, BCryptPasswordEncoder passwordEncoder, AccountMapper accountMapper) {
+    public AccountServiceImpl(AccountRepository accountRepository, AnimalRepository animalRepository, BCryptPasswordEncoder passwordEncoder, AccountMapper accountMapper, CacheInvalidationBus cacheInvalidationBus) {
         this.accountRepository = accountRepository;
         this.animalRepository = animalRepository;
         this.passwordEncoder = passwordEncoder;
         this.accountMapper = accountMapper;
+        this.cacheInvalidationBus = cacheInvalidationBus;
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     @Override
-    public List<AccountViewDto> findAll() {
-        log.info("get all accounts");
+    public List<AccountViewDto> findAll(Integer afterId, int size) {
+        log.info("get accounts after id {}", afterId);
+        Pageable pageable = PageRequest.of(0, pageSize(size));
         List<AccountViewDto> list = new ArrayList();
-        accountRepository.findAll().forEach(entity->list.add(accountMapper.convertEntityToViewDto(entity)));
+        accountRepository.findByIdGreaterThanOrderByIdAsc(afterId==null ? 0 : afterId, pageable)
+                .forEach(view->list.add(accountMapper.convertViewToViewDto(view)));
         return list;
     }
 
-    @Transactional
+    @Override
+    public int pageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    @Transactional(readOnly = true)
     @Override
     public List<AccountViewDto> search(String username, AccountDto dto, Pageable pageable) {
         log.info("search account by parameters");
@@ -89,17 +102,17 @@ public class AccountServiceImpl implements AccountService {
         return dtoList;
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     @Override
     public Optional<AccountViewDto> findById(String username, Integer id) {
         log.info("find account with id {}",id);
-        Optional<Account> box = accountRepository.findById(id);
+        Optional<AccountView> box = accountRepository.findViewById(id);
         if (box.isPresent())
         {
-            Account entity = box.get();
-            if (entity.getEmail().equals(username))
+            AccountView view = box.get();
+            if (view.getEmail().equals(username))
             {
-                return Optional.of(accountMapper.convertEntityToViewDto(box.get()));
+                return Optional.of(accountMapper.convertViewToViewDto(view));
             }
             else
             {
@@ -134,11 +147,12 @@ public class AccountServiceImpl implements AccountService {
                 isValid = isAllowEmail(dto.getEmail());
                 if (isValid)
                 {
-                    isValid = !accountRepository.findByEmail(dto.getEmail()).isPresent();
+                    isValid = !accountRepository.existsByEmail(dto.getEmail());
                     if (isValid)
                     {
                         dto.setPassword(passwordEncoder.encode(dto.getPassword()));
                         dto = accountMapper.toDto(accountRepository.save(accountMapper.toEntity(dto)));
+                        cacheInvalidationBus.publish(Account.class, dto.getId());
                         return Optional.ofNullable(dto);
                     }
                     else
@@ -191,7 +205,9 @@ public class AccountServiceImpl implements AccountService {
                         if (isValid)
                         {
                             dto.setPassword(passwordEncoder.encode(dto.getPassword()));
+                            dto.setVersion(entity.getVersion());
                             entity = accountRepository.save(accountMapper.toEntity(dto));
+                            cacheInvalidationBus.publish(Account.class, entity.getId());
                             return Optional.ofNullable(accountMapper.convertEntityToViewDto(entity));
                         }
                         else
@@ -243,15 +259,16 @@ public class AccountServiceImpl implements AccountService {
                 Account entity = box.get();
                 if (entity.getEmail().equals(userName))
                 {
-                    Optional<Animal> animalBox = animalRepository.findByChipperId(id);
-                    if (!animalBox.isPresent())
+                    Boolean isUsed = animalRepository.existsByChipperId(id);
+                    if (!isUsed)
                     {
                         accountRepository.deleteById(id);
+                        cacheInvalidationBus.publish(Account.class, id);
                         log.info("account removing success");
                     }
                     else
                     {
-                        String message = "account with id "+id+" use in animal entity, id"+animalBox.get().getId();
+                        String message = "account with id "+id+" use in animal entity";
                         log.warn(message);
                         throw new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
                     }
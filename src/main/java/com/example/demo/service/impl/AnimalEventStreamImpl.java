@@ -0,0 +1,388 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.config.DateTimeParser;
+import com.example.demo.config.IdArrays;
+import com.example.demo.config.ResponseStatusException;
+import com.example.demo.model.Animal;
+import com.example.demo.model.AnimalVisitedLocation;
+import com.example.demo.model.LifeStatus;
+import com.example.demo.model.LocationPoint;
+import com.example.demo.repository.projection.AnimalView;
+import com.example.demo.service.AnimalEventStream;
+import com.example.demo.service.dto.AnimalEventDto;
+import com.example.demo.service.dto.AnimalEventFilterDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * реализация ленты событий животных
+ * рассылка не блокирует публикующий поток: событие кладется в ограниченный буфер каждого подходящего
+ * подписчика, а отправку выполняет общий пул потоков, не более одной задачи на подписчика одновременно
+ * подписчик, чей буфер переполнен (медленный клиент), отключается; клиент может переподключиться
+ * пустые комментарии раз в heartbeat-seconds держат соединение через прокси и выявляют закрытые соединения
+ * метрики: animals.stream.subscribers, animals.stream.evicted
+ * @author ROMAN
+ * @date 2023-03-13
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class AnimalEventStreamImpl implements AnimalEventStream, DisposableBean {
+
+    private static final AnimalEventDto HEARTBEAT = new AnimalEventDto();
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList();
+
+    private final AtomicLong eventIds = new AtomicLong();
+
+    private final ExecutorService sender;
+
+    private final ScheduledExecutorService heartbeat;
+
+    private final int bufferSize;
+
+    private final long timeoutMillis;
+
+    private final int maxSubscribers;
+
+    private final Counter evicted;
+
+    @Autowired
+    public AnimalEventStreamImpl(MeterRegistry meterRegistry,
+                                 @Value("${animal.stream.buffer-size:256}") int bufferSize,
+                                 @Value("${animal.stream.timeout-millis:1800000}") long timeoutMillis,
+                                 @Value("${animal.stream.max-subscribers:1000}") int maxSubscribers,
+                                 @Value("${animal.stream.sender-threads:2}") int senderThreads,
+                                 @Value("${animal.stream.heartbeat-seconds:15}") long heartbeatSeconds) {
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeoutMillis;
+        this.maxSubscribers = maxSubscribers;
+        AtomicInteger threads = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "animal-stream-sender-"+threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "animal-stream-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeat.scheduleAtFixedRate(() -> subscribers.forEach(subscriber -> subscriber.offer(HEARTBEAT)), heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        this.evicted = Counter.builder("animals.stream.evicted").register(meterRegistry);
+        Gauge.builder("animals.stream.subscribers", subscribers, List::size).register(meterRegistry);
+    }
+
+    @Override
+    public void destroy()
+    {
+        heartbeat.shutdownNow();
+        sender.shutdownNow();
+        for (Subscriber subscriber: subscribers)
+        {
+            subscriber.close();
+        }
+    }
+
+    @Override
+    public void visited(Animal animal, AnimalVisitedLocation visit)
+    {
+        if (subscribers.isEmpty())
+        {
+            return;
+        }
+        AnimalEventDto event = event(AnimalEventDto.Type.VISITED, animal, visit.getLocationPoint());
+        event.setVisitedLocationId(visit.getId());
+        event.setDateTime(visit.getDateTimeOfVisitLocationPoint());
+        publish(event);
+    }
+
+    @Override
+    public void visited(AnimalView animal, AnimalVisitedLocation visit)
+    {
+        if (subscribers.isEmpty())
+        {
+            return;
+        }
+        AnimalEventDto event = event(AnimalEventDto.Type.VISITED, animal.getId(), IdArrays.parse(animal.getAnimalTypeIds()), animal.getLifeStatus(), visit.getLocationPoint());
+        event.setVisitedLocationId(visit.getId());
+        event.setDateTime(visit.getDateTimeOfVisitLocationPoint());
+        publish(event);
+    }
+
+    @Override
+    public void chipped(Animal animal)
+    {
+        if (subscribers.isEmpty())
+        {
+            return;
+        }
+        AnimalEventDto event = event(AnimalEventDto.Type.CHIPPED, animal, animal.getChippingLocationId());
+        event.setDateTime(animal.getChippingDateTime());
+        publish(event);
+    }
+
+    @Override
+    public void lifeStatusChanged(Animal animal, LocationPoint point)
+    {
+        if (subscribers.isEmpty())
+        {
+            return;
+        }
+        AnimalEventDto event = event(AnimalEventDto.Type.LIFE_STATUS_CHANGED, animal, point);
+        event.setDateTime(animal.getDeathDatetime()!=null ? animal.getDeathDatetime() : DateTimeParser.now());
+        publish(event);
+    }
+
+    @Override
+    public SseEmitter subscribe(AnimalEventFilterDto filter) throws ResponseStatusException
+    {
+        checkFilter(filter);
+        if (subscribers.size()>=maxSubscribers)
+        {
+            String message = "animal stream has too many subscribers";
+            log.warn(message);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, message);
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, filter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(ex -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        log.info("animal stream subscriber added, {} subscribers", subscribers.size());
+        return emitter;
+    }
+
+    private static AnimalEventDto event(AnimalEventDto.Type type, Animal animal, LocationPoint point)
+    {
+        return event(type, animal.getId(), IdArrays.parse(animal.getAnimalTypeIds()), animal.getLifeStatus(), point);
+    }
+
+    private static AnimalEventDto event(AnimalEventDto.Type type, Long animalId, long[] animalTypes, LifeStatus lifeStatus, LocationPoint point)
+    {
+        AnimalEventDto event = new AnimalEventDto();
+        event.setType(type);
+        event.setAnimalId(animalId);
+        event.setAnimalTypes(animalTypes);
+        event.setLifeStatus(lifeStatus);
+        if (point!=null)
+        {
+            event.setLocationPointId(point.getId());
+            event.setLatitude(point.getLatitude());
+            event.setLongitude(point.getLongitude());
+        }
+        return event;
+    }
+
+    /**
+     * рассылка после фиксации текущей транзакции (вне транзакции - сразу)
+     * @param event
+     */
+    private void publish(AnimalEventDto event)
+    {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit()
+                {
+                    dispatch(event);
+                }
+            });
+        }
+        else
+        {
+            dispatch(event);
+        }
+    }
+
+    private void dispatch(AnimalEventDto event)
+    {
+        event.setEventId(eventIds.incrementAndGet());
+        for (Subscriber subscriber: subscribers)
+        {
+            if (subscriber.matches(event))
+            {
+                subscriber.offer(event);
+            }
+        }
+    }
+
+    private static void checkFilter(AnimalEventFilterDto filter) throws ResponseStatusException
+    {
+        Boolean isValid = true;
+        if (filter.getAnimalIds()!=null)
+        {
+            for (long id: filter.getAnimalIds())
+            {
+                isValid = isValid && id>0;
+            }
+        }
+        isValid = isValid && (filter.getTypeId()==null || filter.getTypeId()>0);
+        Double[] box = {filter.getMinLatitude(), filter.getMaxLatitude(), filter.getMinLongitude(), filter.getMaxLongitude()};
+        long bounds = Arrays.stream(box).filter(value -> value!=null).count();
+        if (bounds==box.length)
+        {
+            isValid = isValid && box[0]>=-90 && box[1]<=90 && box[0]<=box[1]
+                    && box[2]>=-180 && box[2]<=180 && box[3]>=-180 && box[3]<=180;
+        }
+        else
+        {
+            isValid = isValid && bounds==0;
+        }
+        if (!isValid)
+        {
+            String message = "animalIds and typeId must be positive, bounding box needs all four valid bounds";
+            log.warn(message);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
+        }
+    }
+
+    /**
+     * подписчик: фильтр, ограниченный буфер событий и признак запланированной отправки
+     */
+    private class Subscriber {
+
+        private final SseEmitter emitter;
+
+        private final long[] animalIds;
+
+        private final Long typeId;
+
+        private final AnimalEventFilterDto filter;
+
+        private final BlockingQueue<AnimalEventDto> buffer = new ArrayBlockingQueue(bufferSize);
+
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private volatile boolean closed;
+
+        Subscriber(SseEmitter emitter, AnimalEventFilterDto filter)
+        {
+            this.emitter = emitter;
+            this.animalIds = filter.getAnimalIds()!=null && filter.getAnimalIds().length>0 ? IdArrays.distinct(filter.getAnimalIds()) : null;
+            this.typeId = filter.getTypeId();
+            this.filter = filter;
+        }
+
+        /**
+         * долгота вне [minLongitude, maxLongitude] при minLongitude > maxLongitude
+         * означает прямоугольник через 180-й меридиан
+         */
+        boolean matches(AnimalEventDto event)
+        {
+            if (animalIds!=null && Arrays.binarySearch(animalIds, event.getAnimalId())<0)
+            {
+                return false;
+            }
+            if (typeId!=null && Arrays.stream(event.getAnimalTypes()).noneMatch(type -> type==typeId))
+            {
+                return false;
+            }
+            if (filter.getMinLatitude()==null)
+            {
+                return true;
+            }
+            if (event.getLatitude()==null || event.getLatitude()<filter.getMinLatitude() || event.getLatitude()>filter.getMaxLatitude())
+            {
+                return false;
+            }
+            double longitude = event.getLongitude();
+            return filter.getMinLongitude()<=filter.getMaxLongitude()
+                    ? longitude>=filter.getMinLongitude() && longitude<=filter.getMaxLongitude()
+                    : longitude>=filter.getMinLongitude() || longitude<=filter.getMaxLongitude();
+        }
+
+        void offer(AnimalEventDto event)
+        {
+            if (closed)
+            {
+                return;
+            }
+            if (!buffer.offer(event))
+            {
+                log.warn("animal stream subscriber is too slow and was evicted");
+                evicted.increment();
+                close();
+                return;
+            }
+            if (scheduled.compareAndSet(false, true))
+            {
+                try
+                {
+                    sender.execute(this::drain);
+                }
+                catch (RejectedExecutionException ex)
+                {
+                    close();
+                }
+            }
+        }
+
+        private void drain()
+        {
+            do
+            {
+                AnimalEventDto event;
+                while (!closed && (event = buffer.poll())!=null)
+                {
+                    try
+                    {
+                        if (event==HEARTBEAT)
+                        {
+                            emitter.send(SseEmitter.event().comment(""));
+                        }
+                        else
+                        {
+                            emitter.send(SseEmitter.event()
+                                    .id(String.valueOf(event.getEventId()))
+                                    .name(event.getType().name())
+                                    .data(event, MediaType.APPLICATION_JSON));
+                        }
+                    }
+                    catch (IOException | IllegalStateException ex)
+                    {
+                        log.info("animal stream subscriber disconnected: {}", ex.getMessage());
+                        close();
+                    }
+                }
+                scheduled.set(false);
+            }
+            while (!closed && !buffer.isEmpty() && scheduled.compareAndSet(false, true));
+        }
+
+        void close()
+        {
+            closed = true;
+            subscribers.remove(this);
+            buffer.clear();
+            try
+            {
+                emitter.complete();
+            }
+            catch (IllegalStateException ex)
+            {
+                log.debug("animal stream emitter already completed");
+            }
+        }
+    }
+}
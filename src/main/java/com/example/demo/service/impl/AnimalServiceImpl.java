@@ -1,23 +1,30 @@
 package com.example.demo.service.impl;
 
+import com.example.demo.config.DateTimeParser;
+import com.example.demo.config.IdArrays;
 import com.example.demo.config.ResponseStatusException;
 import com.example.demo.model.*;
 import com.example.demo.repository.*;
+import com.example.demo.repository.projection.AnimalView;
+import com.example.demo.repository.projection.VersionView;
+import com.example.demo.service.AnimalEventStream;
 import com.example.demo.service.AnimalService;
 import com.example.demo.service.dto.*;
 import com.example.demo.service.mapper.AnimalMapper;
 import com.example.demo.service.mapper.AnimalTypeMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.OffsetDateTime;
 import java.util.*;
 
 /**
@@ -30,6 +37,23 @@ import java.util.*;
 @Service
 public class AnimalServiceImpl implements AnimalService {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * пересчет CSV столбца animal_types для порции животных одним запросом:
+     * к текущим типам добавляются add, удаляются remove; животные, у которых не осталось типов, не изменяются
+     * параметры: add bigint[], remove bigint[], ids bigint[]
+     */
+    private static final String BULK_TYPES_UPDATE =
+            "with target as (" +
+            " select a.id, array(select distinct t from unnest(string_to_array(nullif(a.animal_types, ''), ',')::bigint[] || ?::bigint[]) t" +
+            " where t <> all(?::bigint[]) order by t) as types" +
+            " from animal a where a.id = any(?::bigint[]) for update)," +
+            " changed as (" +
+            " update animal a set animal_types = array_to_string(target.types, ','), version = a.version + 1, updated_at = now()" +
+            " from target where a.id = target.id and cardinality(target.types) > 0 returning a.id)" +
+            " select target.id, changed.id is not null as updated from target left join changed on changed.id = target.id";
+
     private final AnimalRepository animalRepository;
 
     private final AnimalTypeRepository animalTypeRepository;
@@ -44,8 +68,17 @@ public class AnimalServiceImpl implements AnimalService {
 
     private final LocationPointRepository locationPointRepository;
 
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int bulkChunkSize;
+
+    private final AnimalEventStream animalEventStream;
+
     @Autowired
-    public AnimalServiceImpl(AnimalRepository animalRepository, AnimalTypeRepository animalTypeRepository, AnimalMapper animalMapper, AnimalTypeMapper animalTypeMapper, AnimalVisitedLocationRepository animalVisitedLocationRepository, AccountRepository accountRepository, LocationPointRepository locationPointRepository) {
+    public AnimalServiceImpl(AnimalRepository animalRepository, AnimalTypeRepository animalTypeRepository, AnimalMapper animalMapper, AnimalTypeMapper animalTypeMapper, AnimalVisitedLocationRepository animalVisitedLocationRepository, AccountRepository accountRepository, LocationPointRepository locationPointRepository,
+                             JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, @Value("${animal.types.bulk.chunk-size:1000}") int bulkChunkSize, AnimalEventStream animalEventStream) {
         this.animalRepository = animalRepository;
         this.animalTypeRepository = animalTypeRepository;
         this.animalMapper = animalMapper;
@@ -53,13 +86,17 @@ public class AnimalServiceImpl implements AnimalService {
         this.animalVisitedLocationRepository = animalVisitedLocationRepository;
         this.accountRepository = accountRepository;
         this.locationPointRepository = locationPointRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.bulkChunkSize = bulkChunkSize;
+        this.animalEventStream = animalEventStream;
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     @Override
     public Optional<AnimalDto> findById(Long id) {
         log.info("search animal by id {}",id);
-        Optional<Animal> box = animalRepository.findById(id);
+        Optional<AnimalView> box = animalRepository.findViewById(id);
         if (box.isPresent())
         {
             return Optional.of(animalMapper.toDto(box.get()));
@@ -67,134 +104,168 @@ public class AnimalServiceImpl implements AnimalService {
         return Optional.empty();
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
+    @Override
+    public Optional<VersionView> findVersionById(Long id) {
+        log.info("search version of animal with id {}", id);
+        return animalRepository.findVersionById(id);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<MultiGetResultDto<AnimalDto>> findAllById(long[] ids) throws ResponseStatusException {
+        log.info("search {} animals by ids", ids!=null ? ids.length : 0);
+        MultiGet.checkIds(ids);
+        Map<Long, AnimalView> found = new HashMap();
+        animalRepository.findViewsByIdIn(IdArrays.boxed(IdArrays.distinct(ids))).forEach(view->found.put(view.getId(), view));
+        return MultiGet.inRequestOrder(ids, found, animalMapper::toDto);
+    }
+
+    @Transactional(readOnly = true)
     @Override
     public List<AnimalDto> search(AnimalSearchDto dto, Pageable pageable) throws ResponseStatusException{
         log.info("search animal by parameters");
-        Date startDateTime = null;
-        Date endDateTime = null;
-        Page<Animal> entities = Page.empty();
+        Page<AnimalView> entities = Page.empty();
         pageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by("id").ascending());
         if (dto.getStartDateTime() != null && dto.getEndDateTime()!=null && dto.getChipperId()!=null && dto.getChippingLocationId()!=null && dto.getLifeStatus()!=null && dto.getGender()!=null)
         {
-            try
-            {
-                SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-                sdf.setLenient(false);
-                startDateTime = sdf.parse(dto.getStartDateTime());
-                endDateTime = sdf.parse(dto.getEndDateTime());
-
-            }
-            catch (ParseException ex)
+            Optional<OffsetDateTime> startDateTime = DateTimeParser.parse(dto.getStartDateTime());
+            Optional<OffsetDateTime> endDateTime = DateTimeParser.parse(dto.getEndDateTime());
+            if (!startDateTime.isPresent() || !endDateTime.isPresent())
             {
                 String message = "startDateTime or endDateTime format is invalid";
                 log.warn(message);
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
             }
-            entities =  entities = animalRepository.findByChippingDateTimeAfterAndChippingDateTimeBeforeAndChipperIdAndChippingLocationId_IdAndLifeStatusAndGender(startDateTime, endDateTime, dto.getChipperId(), dto.getChippingLocationId(), dto.getLifeStatus(), dto.getGender(), pageable);
+            entities = animalRepository.searchViews(startDateTime.get(), endDateTime.get(), dto.getChipperId(), dto.getChippingLocationId(), dto.getLifeStatus(), dto.getGender(), pageable);
         }
         else
         {
-            entities = animalRepository.findAll(pageable);
+            entities = animalRepository.findAllViews(pageable);
         }
-        List<AnimalDto> dtoList = new ArrayList();
-        if (entities.getSize()>0)
+        List<AnimalDto> list = new ArrayList(entities.getNumberOfElements());
+        for (AnimalView entity: entities)
         {
-            for (Animal entity: entities.toList())
+            if (dto.getChippingLocationId()!=null )
             {
-                if (dto.getChippingLocationId()!=null )
-                {
-                    if (entity.getChippingLocationId().getId().equals(dto.getChippingLocationId()))
-                        dtoList.add(animalMapper.toDto(entity));
-                }
-                else
-                {
-                    dtoList.add(animalMapper.toDto(entity));
-                }
+                if (entity.getChippingLocationId().equals(dto.getChippingLocationId()))
+                    list.add(animalMapper.toDto(entity));
+            }
+            else
+            {
+                list.add(animalMapper.toDto(entity));
             }
         }
-        return dtoList;
+        return list;
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<AnimalDto> findByChippingLocation(Long locationPointId, Long afterId, int size) throws ResponseStatusException {
+        log.info("get animals chipped at location point {} after id {}", locationPointId, afterId);
+        checkLocationPoint(locationPointId);
+        Pageable pageable = PageRequest.of(0, pageSize(size));
+        List<AnimalDto> list = new ArrayList();
+        animalRepository.findViewsByChippingLocation(locationPointId, afterId==null ? 0L : afterId, pageable)
+                .forEach(view->list.add(animalMapper.toDto(view)));
+        return list;
+    }
+
+    @Override
+    public int pageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public long countByChippingLocation(Long locationPointId) throws ResponseStatusException {
+        log.info("count animals chipped at location point {}", locationPointId);
+        checkLocationPoint(locationPointId);
+        return animalRepository.countByChippingLocationId_Id(locationPointId);
+    }
+
+    private void checkLocationPoint(Long locationPointId) throws ResponseStatusException
+    {
+        if (!locationPointRepository.existsById(locationPointId))
+        {
+            String message = "location point with id "+locationPointId+" was not found";
+            log.warn(message);
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, message);
+        }
     }
 
     @Transactional
     @Override
     public Optional<AnimalDto> add(AnimalDto dto) throws ResponseStatusException{
         log.info("adding new animal");
-        try
-        {
-            validateAnimal(dto, true);
-            dto.setChippingDateTime(new Date());
-            dto.setLifeStatus(LifeStatus.ALIVE);
+        AnimalReferences references = validateAnimal(dto, true);
+        dto.setChippingDateTime(DateTimeParser.now());
+        dto.setLifeStatus(LifeStatus.ALIVE);
 
-            dto = animalMapper.toDto(animalRepository.save(animalMapper.toEntity(dto)));
-            return Optional.ofNullable(dto);
-        }
-        catch (ResponseStatusException ex)
-        {
-            throw ex;
-        }
+        Animal entity = animalRepository.save(animalMapper.toEntity(dto, references));
+        animalEventStream.chipped(entity);
+        return Optional.ofNullable(animalMapper.toDto(entity));
     }
 
     @Transactional
     @Override
     public Optional<AnimalDto> update(AnimalDto dto) throws ResponseStatusException {
         log.info("updating information about animal");
-        try
+        AnimalReferences references = validateAnimal(dto, false);
+        Optional<Animal> box = animalRepository.findById(dto.getId());
+        if (box.isPresent())
         {
-            validateAnimal(dto, false);
-            Optional<Animal> box = animalRepository.findById(dto.getId());
-            if (box.isPresent())
+            Animal entity = box.get();
+            Boolean isValid = !(entity.getLifeStatus().equals(LifeStatus.DEAD)
+                    && dto.getLifeStatus().equals(LifeStatus.ALIVE));
+            if (!isValid)
             {
-                Animal entity = box.get();
-                Boolean isValid = !(entity.getLifeStatus().equals(LifeStatus.DEAD)
-                        && dto.getLifeStatus().equals(LifeStatus.ALIVE));
-                if (!isValid)
-                {
-                    String message = "trying to change lifeStatus for animal with id "+entity.getId()+" from 'DEAD' to 'ALIVE'";
-                    log.warn(message);
-                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
-                }
-                isValid = true;
-                List<AnimalVisitedLocation> list = entity.getAnimalVisitedLocations();
-                if (list!=null)
-                {
-                    for (AnimalVisitedLocation location: list)
-                    {
-                        isValid = location.getLocationPoint().getId() != entity.getChippingLocationId().getId();
-                        if (!isValid)
-                            break;
-                    }
-                }
+                String message = "trying to change lifeStatus for animal with id "+entity.getId()+" from 'DEAD' to 'ALIVE'";
+                log.warn(message);
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
+            }
+            isValid = true;
+            List<AnimalVisitedLocation> list = animalVisitedLocationRepository.findAllInOrder(IdArrays.parse(entity.getVisitedLocationIds()));
+            for (AnimalVisitedLocation location: list)
+            {
+                isValid = location.getLocationPoint().getId() != entity.getChippingLocationId().getId();
                 if (!isValid)
-                {
-                    String message = "one of animalVisitedLocationPoints are equal to chippingLocationId for animal with id "+entity.getId();
-                    log.warn(message);
-                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
-                }
-                Set<AnimalType> types = entity.getAnimalTypes();
-                if (types!=null)
-                {
-                    Set<Long> typesIds = new HashSet();
-                    for (AnimalType item: types)
-                    {
-                        typesIds.add(item.getId());
-                    }
-                    dto.setAnimalTypes(typesIds);
-                }
-                dto.setChippingDateTime(entity.getChippingDateTime());
-                entity = animalMapper.toEntity(dto);
-                entity = animalRepository.save(entity);
-                return Optional.ofNullable(animalMapper.toDto(entity));
+                    break;
             }
-            else
+            if (!isValid)
+            {
+                String message = "one of animalVisitedLocationPoints are equal to chippingLocationId for animal with id "+entity.getId();
+                log.warn(message);
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
+            }
+            long[] types = IdArrays.parse(entity.getAnimalTypeIds());
+            dto.setAnimalTypes(types);
+            references.setAnimalTypeIds(types);
+            if (dto.getVisitedLocations()==null)
             {
-                log.warn("animal with id "+dto.getId()+" was not found");
-                return Optional.empty();
+                references.setVisitedLocationIds(IdArrays.of(list, AnimalVisitedLocation::getId));
             }
+            if (dto.getVersion()!=null && !dto.getVersion().equals(entity.getVersion()))
+            {
+                String message = "animal with id "+entity.getId()+" was modified, expected version "+dto.getVersion()+" but found "+entity.getVersion();
+                log.warn(message);
+                throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, message);
+            }
+            dto.setChippingDateTime(entity.getChippingDateTime());
+            dto.setVersion(entity.getVersion());
+            LifeStatus lifeStatus = entity.getLifeStatus();
+            entity = animalMapper.toEntity(dto, references);
+            entity = animalRepository.saveAndFlush(entity);
+            if (!lifeStatus.equals(entity.getLifeStatus()))
+            {
+                animalEventStream.lifeStatusChanged(entity, lastLocationPoint(entity, references, list));
+            }
+            return Optional.ofNullable(animalMapper.toDto(entity));
         }
-        catch (ResponseStatusException ex)
+        else
         {
-            throw ex;
+            log.warn("animal with id "+dto.getId()+" was not found");
+            return Optional.empty();
         }
     }
 
@@ -208,12 +279,8 @@ public class AnimalServiceImpl implements AnimalService {
             if (box.isPresent())
             {
                 Animal entity = box.get();
-                Boolean isValid = entity.getAnimalVisitedLocations()!=null;
-                if (isValid)
-                {
-                    isValid = entity.getAnimalVisitedLocations().size()<=1;
-                }
-                if (!isValid && entity.getAnimalVisitedLocations()!=null)
+                Boolean isValid = IdArrays.parse(entity.getVisitedLocationIds()).length<=1;
+                if (!isValid)
                 {
                     String message = "animal with id "+id+" have several visitedLocationPoints";
                     log.warn(message);
@@ -241,9 +308,7 @@ public class AnimalServiceImpl implements AnimalService {
             if (animalBox.isPresent() && typeBox.isPresent())
             {
                 Animal entity = animalBox.get();
-                Set<AnimalType> types = entity.getAnimalTypes();
-                types.add(typeBox.get());
-                entity.setAnimalTypes(types);
+                entity.setAnimalTypeIds(IdArrays.join(IdArrays.replace(IdArrays.parse(entity.getAnimalTypeIds()), null, typeId)));
                 entity = animalRepository.save(entity);
                 if (entity!=null)
                 {
@@ -287,79 +352,29 @@ public class AnimalServiceImpl implements AnimalService {
                 Optional<AnimalDto> resultBox = Optional.empty();
                 Animal entity = box.get();
 
-                List<AnimalType> types = new ArrayList<AnimalType>(entity.getAnimalTypes());
-                Boolean isCorrect = false;
-                if (types!=null)
+                long[] types = IdArrays.parse(entity.getAnimalTypeIds());
+                if (!IdArrays.contains(types, typeDto.getOldType()))
                 {
-                    for (AnimalType type: types)
-                    {
-                        if (type.getId().equals(typeDto.getOldType()))
-                        {
-                            isCorrect = true;
-                            break;
-                        }
-                    }
-                    if (!isCorrect)
-                    {
-                        String message ="animalType with id "+typeDto.getOldType()+"was not found for animal with id "+animalId;
-                        log.warn(message);
-                        throw new ResponseStatusException(HttpStatus.NOT_FOUND, message);
-                    }
-                    if (isCorrect)
-                    {
-                        for (AnimalType type: types)
-                        {
-                            if (type.getId().equals(typeDto.getNewType()))
-                            {
-                                isCorrect = false;
-                                break;
-                            }
-                        }
-                    }
-                    if (isCorrect)
-                    {
-                        try
-                        {
-                            Long typeId = oldTypeBox.get().getId();
-
-                            Integer index = -1;
-                            for (int i=0; i<types.size(); i++)
-                            {
-                                if (types.get(i).getId().equals(typeId))
-                                {
-                                    index = i;
-                                    break;
-                                }
-                            }
-                            if (types.get(index)!=null)
-                            {
-                                types.remove(index.intValue());
-                            }
-                            types.add(newTypeBox.get());
-                            entity.setAnimalTypes(new HashSet<>(types));
-                            entity = animalRepository.save(entity);
-                            if (entity!=null)
-                            {
-                                log.info("changing type for animal success");
-                                resultBox = Optional.of(animalMapper.toDto(entity));
-                            }
-                            else
-                            {
-                                log.warn("changing type for animal failed");
-                            }
-
-                        }
-                        catch (IndexOutOfBoundsException ex)
-                        {
-                            log.warn("type with id {} for animal with id {} was not found", typeDto.getOldType(), animalId);
-                        }
-                    }
-                    else
-                    {
-                        String message = "animal with id "+animalId+" already have type with id "+typeDto.getNewType();
-                        log.warn(message);
-                        throw new ResponseStatusException(HttpStatus.CONFLICT, message);
-                    }
+                    String message ="animalType with id "+typeDto.getOldType()+"was not found for animal with id "+animalId;
+                    log.warn(message);
+                    throw new ResponseStatusException(HttpStatus.NOT_FOUND, message);
+                }
+                if (IdArrays.contains(types, typeDto.getNewType()))
+                {
+                    String message = "animal with id "+animalId+" already have type with id "+typeDto.getNewType();
+                    log.warn(message);
+                    throw new ResponseStatusException(HttpStatus.CONFLICT, message);
+                }
+                entity.setAnimalTypeIds(IdArrays.join(IdArrays.replace(types, typeDto.getOldType(), typeDto.getNewType())));
+                entity = animalRepository.save(entity);
+                if (entity!=null)
+                {
+                    log.info("changing type for animal success");
+                    resultBox = Optional.of(animalMapper.toDto(entity));
+                }
+                else
+                {
+                    log.warn("changing type for animal failed");
                 }
 
                 return resultBox;
@@ -390,20 +405,11 @@ public class AnimalServiceImpl implements AnimalService {
             if (box.isPresent() && animalTypeBox.isPresent())
             {
                 Animal entity = box.get();
-                List<AnimalType> types = new ArrayList<AnimalType>(entity.getAnimalTypes());
-                AnimalType removingType = null;
-                for (AnimalType type: types)
+                long[] types = IdArrays.parse(entity.getAnimalTypeIds());
+                if (IdArrays.contains(types, typeId))
                 {
-                    if (type.getId().equals(typeId))
-                    {
-                        removingType = type;
-                    }
-                }
-                if (removingType!=null)
-                {
-                    types.remove(removingType);
                     log.info("removing animalType with id {} for animal with id {} success", typeId,animalId);
-                    entity.setAnimalTypes(new HashSet(types));
+                    entity.setAnimalTypeIds(IdArrays.join(IdArrays.replace(types, typeId, null)));
                     entity = animalRepository.save(entity);
                     return Optional.ofNullable(animalMapper.toDto(entity));
                 }
@@ -428,8 +434,77 @@ public class AnimalServiceImpl implements AnimalService {
         }
     }
 
-    private void validateAnimal(AnimalDto dto, Boolean isCheckingTypes) throws ResponseStatusException
+    @Override
+    public List<AnimalTypeBulkResultDto> updateAnimalTypes(AnimalTypeBulkDto dto) throws ResponseStatusException {
+        log.info("bulk update of animal types for {} animals", dto.getAnimalIds().size());
+        Set<Long> typeIds = new HashSet(dto.getAdd());
+        typeIds.addAll(dto.getRemove());
+        Set<Long> foundTypeIds = new HashSet(transactionTemplate.execute(status ->
+                jdbcTemplate.queryForList("select id from animal_type where id = any(?)", Long.class, (Object) typeIds.toArray(new Long[0]))));
+        for (Long id: typeIds)
+        {
+            if (!foundTypeIds.contains(id))
+            {
+                String message = "animalType with id "+id+" was not found";
+                log.warn(message);
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, message);
+            }
+        }
+        Long[] add = dto.getAdd().toArray(new Long[0]);
+        Long[] remove = dto.getRemove().toArray(new Long[0]);
+        List<Long> animalIds = new ArrayList(new LinkedHashSet(dto.getAnimalIds()));
+        Map<Long, AnimalTypeBulkResultDto.Status> statuses = new HashMap();
+        for (int from = 0; from < animalIds.size(); from += bulkChunkSize)
+        {
+            Long[] chunk = animalIds.subList(from, Math.min(from + bulkChunkSize, animalIds.size())).toArray(new Long[0]);
+            List<Map<String, Object>> rows = transactionTemplate.execute(status -> jdbcTemplate.queryForList(BULK_TYPES_UPDATE, add, remove, chunk));
+            log.info("bulk update of animal types: chunk of {} animals committed", chunk.length);
+            for (Map<String, Object> row: rows)
+            {
+                Boolean isUpdated = (Boolean) row.get("updated");
+                statuses.put(((Number) row.get("id")).longValue(), isUpdated ? AnimalTypeBulkResultDto.Status.UPDATED : AnimalTypeBulkResultDto.Status.NO_TYPES_LEFT);
+            }
+        }
+        List<AnimalTypeBulkResultDto> results = new ArrayList();
+        for (Long id: animalIds)
+        {
+            results.add(new AnimalTypeBulkResultDto(id, statuses.getOrDefault(id, AnimalTypeBulkResultDto.Status.NOT_FOUND)));
+        }
+        return results;
+    }
+
+    /**
+     * точка, в которой находится животное: последняя посещенная или точка чипирования
+     * @param entity
+     * @param references
+     * @param visits посещенные точки до изменения
+     * @return LocationPoint
+     */
+    private LocationPoint lastLocationPoint(Animal entity, AnimalReferences references, List<AnimalVisitedLocation> visits)
+    {
+        long[] ids = references.getVisitedLocationIds();
+        if (ids!=null && ids.length>0)
+        {
+            Long lastId = ids[ids.length-1];
+            for (AnimalVisitedLocation visit: visits)
+            {
+                if (visit.getId().equals(lastId))
+                {
+                    return visit.getLocationPoint();
+                }
+            }
+            Optional<AnimalVisitedLocation> box = animalVisitedLocationRepository.findById(lastId);
+            if (box.isPresent())
+            {
+                return box.get().getLocationPoint();
+            }
+        }
+        return entity.getChippingLocationId();
+    }
+
+    private AnimalReferences validateAnimal(AnimalDto dto, Boolean isCheckingTypes) throws ResponseStatusException
     {
+        AnimalReferences references = new AnimalReferences();
         Boolean isValid = false;
         if (dto!=null)
         {
@@ -451,26 +526,33 @@ public class AnimalServiceImpl implements AnimalService {
             {
                 if (isCheckingTypes)
                 {
-                    for (Long id : dto.getAnimalTypes())
+                    for (long id : dto.getAnimalTypes())
                     {
-
-                        isValid = id!=null;
-                        if (isValid)
-                            isValid = id>0;
+                        isValid = id>0;
                         if (!isValid)
                         {
                             String message = "animalType is mandatory and must be positive";
                             log.warn(message);
                             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
                         }
-                        isValid = animalTypeRepository.findById(id).isPresent();
-                        if (!isValid)
+                    }
+                    long[] typeIds = IdArrays.distinct(dto.getAnimalTypes());
+                    List<AnimalType> types = animalTypeRepository.findAllById(IdArrays.boxed(typeIds));
+                    if (types.size()<typeIds.length)
+                    {
+                        Set<Long> foundIds = new HashSet();
+                        types.forEach(type->foundIds.add(type.getId()));
+                        for (long id : typeIds)
                         {
-                            String message = "animalType with id "+id+" was not found";
-                            log.warn(message);
-                            throw new ResponseStatusException(HttpStatus.NOT_FOUND, message);
+                            if (!foundIds.contains(id))
+                            {
+                                String message = "animalType with id "+id+" was not found";
+                                log.warn(message);
+                                throw new ResponseStatusException(HttpStatus.NOT_FOUND, message);
+                            }
                         }
                     }
+                    references.setAnimalTypeIds(typeIds);
                 }
 
                 isValid = dto.getChipperId()!=null;
@@ -484,7 +566,7 @@ public class AnimalServiceImpl implements AnimalService {
                     log.warn(message);
                     throw new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
                 }
-                isValid = accountRepository.findById(dto.getChipperId()).isPresent();
+                isValid = accountRepository.existsById(dto.getChipperId());
                 if (!isValid)
                 {
                     String message = "chipperId "+dto.getChipperId()+" was not found";
@@ -502,13 +584,23 @@ public class AnimalServiceImpl implements AnimalService {
                     log.warn(message);
                     throw new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
                 }
-                isValid = locationPointRepository.findById(dto.getChippingLocationId()).isPresent();
-                if (!isValid)
+                Optional<LocationPoint> locationBox = locationPointRepository.findById(dto.getChippingLocationId());
+                if (!locationBox.isPresent())
                 {
                     String message = "locationPoint with id "+dto.getChippingLocationId()+" was not found";
                     log.warn(message);
                     throw new ResponseStatusException(HttpStatus.NOT_FOUND, message);
                 }
+                references.setChippingLocation(locationBox.get());
+                if (dto.getVisitedLocations()!=null)
+                {
+                    List<AnimalVisitedLocation> visits = animalVisitedLocationRepository.findAllInOrder(dto.getVisitedLocations());
+                    if (visits.size()<dto.getVisitedLocations().length)
+                    {
+                        log.warn("{} of visited locations were not found and are skipped", dto.getVisitedLocations().length - visits.size());
+                    }
+                    references.setVisitedLocationIds(IdArrays.of(visits, AnimalVisitedLocation::getId));
+                }
             }
 
         }
@@ -518,6 +610,7 @@ public class AnimalServiceImpl implements AnimalService {
             log.warn(message);
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
         }
+        return references;
     }
 
 }
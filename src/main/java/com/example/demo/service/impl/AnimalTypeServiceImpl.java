@@ -1,12 +1,16 @@
 package com.example.demo.service.impl;
 
+import com.example.demo.config.CacheInvalidationBus;
+import com.example.demo.config.IdArrays;
 import com.example.demo.config.ResponseStatusException;
 import com.example.demo.model.Animal;
 import com.example.demo.model.AnimalType;
 import com.example.demo.repository.AnimalRepository;
 import com.example.demo.repository.AnimalTypeRepository;
+import com.example.demo.repository.projection.VersionView;
 import com.example.demo.service.AnimalTypeService;
 import com.example.demo.service.dto.AnimalTypeDto;
+import com.example.demo.service.dto.MultiGetResultDto;
 import com.example.demo.service.mapper.AnimalTypeMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,8 +18,9 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import java.util.ArrayList;
+import javax.persistence.EntityManagerFactory;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -34,14 +39,20 @@ public class AnimalTypeServiceImpl implements AnimalTypeService {
 
     private final AnimalTypeMapper animalTypeMapper;
 
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    private final EntityManagerFactory entityManagerFactory;
+
     @Autowired
-    public AnimalTypeServiceImpl(AnimalTypeRepository animalTypeRepository, AnimalRepository animalRepository, AnimalTypeMapper animalTypeMapper) {
+    public AnimalTypeServiceImpl(AnimalTypeRepository animalTypeRepository, AnimalRepository animalRepository, AnimalTypeMapper animalTypeMapper, CacheInvalidationBus cacheInvalidationBus, EntityManagerFactory entityManagerFactory) {
         this.animalTypeRepository = animalTypeRepository;
         this.animalRepository = animalRepository;
         this.animalTypeMapper = animalTypeMapper;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.entityManagerFactory = entityManagerFactory;
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     @Override
     public Optional<AnimalTypeDto> findById(Long id) {
         log.info("searching animal type by id "+id);
@@ -58,6 +69,22 @@ public class AnimalTypeServiceImpl implements AnimalTypeService {
         }
     }
 
+    @Transactional(readOnly = true)
+    @Override
+    public Optional<VersionView> findVersionById(Long id) {
+        log.info("searching version of animal type with id "+id);
+        return animalTypeRepository.findVersionById(id);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<MultiGetResultDto<AnimalTypeDto>> findAllById(long[] ids) throws ResponseStatusException {
+        log.info("searching {} animal types by ids", ids!=null ? ids.length : 0);
+        MultiGet.checkIds(ids);
+        Map<Long, AnimalType> found = MultiGet.loadCachedFirst(entityManagerFactory.getCache(), AnimalType.class, ids, animalTypeRepository, AnimalType::getId);
+        return MultiGet.inRequestOrder(ids, found, animalTypeMapper::toDto);
+    }
+
     @Transactional
     @Override
     public Optional<AnimalTypeDto> add(AnimalTypeDto dto) throws ResponseStatusException {
@@ -71,7 +98,7 @@ public class AnimalTypeServiceImpl implements AnimalTypeService {
                 log.warn(message);
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
             }
-            isValid = !animalTypeRepository.findByType(dto.getType()).isPresent();
+            isValid = !animalTypeRepository.existsByType(dto.getType());
             if (!isValid)
             {
                 String message = "type "+dto.getType()+" is already exist";
@@ -79,6 +106,7 @@ public class AnimalTypeServiceImpl implements AnimalTypeService {
                 throw new ResponseStatusException(HttpStatus.CONFLICT, message);
             }
             AnimalType entity = animalTypeRepository.save(animalTypeMapper.toEntity(dto));
+            cacheInvalidationBus.publish(AnimalType.class, entity.getId());
             return Optional.ofNullable(animalTypeMapper.toDto(entity));
         }
         else
@@ -105,7 +133,7 @@ public class AnimalTypeServiceImpl implements AnimalTypeService {
                     log.warn(message);
                     throw new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
                 }
-                isValid = !animalTypeRepository.findByType(dto.getType()).isPresent();
+                isValid = !animalTypeRepository.existsByType(dto.getType());
                 if (!isValid)
                 {
                     String message = "animalType with type "+dto.getType()+" is already exist";
@@ -113,7 +141,15 @@ public class AnimalTypeServiceImpl implements AnimalTypeService {
                     throw new ResponseStatusException(HttpStatus.CONFLICT, message);
                 }
                 AnimalType entity = box.get();
-                entity = animalTypeRepository.save(animalTypeMapper.toEntity(dto));
+                if (dto.getVersion()!=null && !dto.getVersion().equals(entity.getVersion()))
+                {
+                    String message = "animalType with id "+entity.getId()+" was modified, expected version "+dto.getVersion()+" but found "+entity.getVersion();
+                    log.warn(message);
+                    throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, message);
+                }
+                dto.setVersion(entity.getVersion());
+                entity = animalTypeRepository.saveAndFlush(animalTypeMapper.toEntity(dto));
+                cacheInvalidationBus.publish(AnimalType.class, entity.getId());
                 return Optional.ofNullable(animalTypeMapper.toDto(entity));
             }
             else {
@@ -145,18 +181,10 @@ public class AnimalTypeServiceImpl implements AnimalTypeService {
                 {
                     for (Animal entity : animals)
                     {
-                        List<AnimalType> animalTypes = new ArrayList<AnimalType>(entity.getAnimalTypes());
-                        for (AnimalType type: animalTypes)
-                        {
-                            if (type.getId().equals(id))
-                            {
-                                log.info("found id in animal entity with id "+entity.getId());
-                                animal = entity;
-                                break;
-                            }
-                        }
-                        if (animal!=null)
+                        if (IdArrays.contains(IdArrays.parse(entity.getAnimalTypeIds()), id))
                         {
+                            log.info("found id in animal entity with id "+entity.getId());
+                            animal = entity;
                             break;
                         }
                     }
@@ -168,6 +196,7 @@ public class AnimalTypeServiceImpl implements AnimalTypeService {
                     throw new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
                 }
                 animalTypeRepository.deleteById(id);
+                cacheInvalidationBus.publish(AnimalType.class, id);
                 log.info("animalType removing success");
             }
             else
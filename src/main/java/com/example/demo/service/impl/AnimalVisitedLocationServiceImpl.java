@@ -1,5 +1,7 @@
 package com.example.demo.service.impl;
 
+import com.example.demo.config.DateTimeParser;
+import com.example.demo.config.IdArrays;
 import com.example.demo.config.ResponseStatusException;
 import com.example.demo.model.Animal;
 import com.example.demo.model.AnimalVisitedLocation;
@@ -8,6 +10,7 @@ import com.example.demo.model.LocationPoint;
 import com.example.demo.repository.AnimalRepository;
 import com.example.demo.repository.AnimalVisitedLocationRepository;
 import com.example.demo.repository.LocationPointRepository;
+import com.example.demo.service.AnimalEventStream;
 import com.example.demo.service.AnimalVisitedLocationService;
 import com.example.demo.service.dto.AnimalVisitedLocationDto;
 import com.example.demo.service.dto.AnimalVisitedLocationSearchDto;
@@ -15,13 +18,17 @@ import com.example.demo.service.dto.AnimalVisitedLocationUpdateDto;
 import com.example.demo.service.mapper.AnimalVisitedLocationMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.OffsetDateTime;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * реализация бизнес логики интерфейса AnimalVisitedLocationService
@@ -33,6 +40,8 @@ import java.util.*;
 @Service
 public class AnimalVisitedLocationServiceImpl implements AnimalVisitedLocationService {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+
 
 
     private final AnimalVisitedLocationRepository animalVisitedLocationRepository;
@@ -44,38 +53,42 @@ public class AnimalVisitedLocationServiceImpl implements AnimalVisitedLocationSe
 
     private LocationPointRepository locationPointRepository;
 
+    private final TransactionTemplate transactionTemplate;
+
+    private final AnimalEventStream animalEventStream;
+
+    private final int maxAppendAttempts;
+
     @Autowired
-    public AnimalVisitedLocationServiceImpl(AnimalVisitedLocationRepository animalVisitedLocationRepository, AnimalVisitedLocationMapper animalVisitedLocationMapper, AnimalRepository animalRepository, LocationPointRepository locationPointRepository) {
+    public AnimalVisitedLocationServiceImpl(AnimalVisitedLocationRepository animalVisitedLocationRepository, AnimalVisitedLocationMapper animalVisitedLocationMapper, AnimalRepository animalRepository, LocationPointRepository locationPointRepository, TransactionTemplate transactionTemplate, AnimalEventStream animalEventStream, @Value("${animal.visits.append.max-attempts:5}") int maxAppendAttempts) {
         this.animalVisitedLocationRepository = animalVisitedLocationRepository;
         this.animalVisitedLocationMapper = animalVisitedLocationMapper;
         this.animalRepository = animalRepository;
         this.locationPointRepository = locationPointRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.animalEventStream = animalEventStream;
+        this.maxAppendAttempts = maxAppendAttempts;
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     @Override
     public List<AnimalVisitedLocationDto> findAll(Long id, AnimalVisitedLocationSearchDto dto, Pageable pageable) throws ResponseStatusException {
         log.info("find all visited location points by parameters");
-        List<AnimalVisitedLocationDto> dtoList = new ArrayList();
         if (dto!=null  && id!=null)
         {
-            Boolean isValid = false;
-            Date startDateTime = null;
-            Date endDateTime = null;
+            OffsetDateTime startDateTime = null;
+            OffsetDateTime endDateTime = null;
             if (dto.getStartDateTime()!=null && dto.getEndDateTime()!=null)
             {
-                try
-                {
-                    SimpleDateFormat sdf = new SimpleDateFormat("yyyy-mm-dd");
-                    startDateTime = sdf.parse(dto.getStartDateTime());
-                    endDateTime = sdf.parse(dto.getEndDateTime());
-                    isValid = true;
-                }
-                catch (ParseException ex)
+                Optional<OffsetDateTime> startBox = DateTimeParser.parse(dto.getStartDateTime());
+                Optional<OffsetDateTime> endBox = DateTimeParser.parse(dto.getEndDateTime());
+                Boolean isValid = startBox.isPresent() && endBox.isPresent();
+                if (isValid)
                 {
-                    isValid = false;
+                    startDateTime = startBox.get();
+                    endDateTime = endBox.get();
                 }
-                if (!isValid)
+                else
                 {
                     String message = "startDateTime or endDateTime syntax is invalid";
                     log.warn(message);
@@ -85,26 +98,25 @@ public class AnimalVisitedLocationServiceImpl implements AnimalVisitedLocationSe
             Optional<Animal> box = animalRepository.findById(id);
             if (box.isPresent())
             {
-                List<AnimalVisitedLocation> list = box.get().getAnimalVisitedLocations();
-                if (list!=null)
+                List<AnimalVisitedLocationDto> result = new ArrayList();
+                List<AnimalVisitedLocation> list = animalVisitedLocationRepository.findAllInOrder(IdArrays.parse(box.get().getVisitedLocationIds()));
+                list.sort(Comparator.comparing(AnimalVisitedLocation::getDateTimeOfVisitLocationPoint));
+                for (AnimalVisitedLocation location: list)
                 {
-                    for (AnimalVisitedLocation location: list)
+                    if (dto.getStartDateTime()!=null && dto.getEndDateTime()!=null)
                     {
-                        if (dto.getStartDateTime()!=null && dto.getEndDateTime()!=null)
-                        {
-                            if (location.getDateTimeOfVisitLocationPoint().compareTo(startDateTime)>0
-                                    && location.getDateTimeOfVisitLocationPoint().compareTo(endDateTime)<0 )
-                            {
-                                dtoList.add(animalVisitedLocationMapper.toDto(location));
-                            }
-                        }
-                        else
+                        if (location.getDateTimeOfVisitLocationPoint().isAfter(startDateTime)
+                                && location.getDateTimeOfVisitLocationPoint().isBefore(endDateTime))
                         {
-                            dtoList.add(animalVisitedLocationMapper.toDto(location));
+                            result.add(animalVisitedLocationMapper.toDto(location));
                         }
                     }
-                    dtoList.sort(Comparator.comparing(AnimalVisitedLocationDto::getDateTimeOfVisitLocationPoint));
+                    else
+                    {
+                        result.add(animalVisitedLocationMapper.toDto(location));
+                    }
                 }
+                return result;
             }
             else
             {
@@ -119,10 +131,9 @@ public class AnimalVisitedLocationServiceImpl implements AnimalVisitedLocationSe
             log.warn(message);
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
         }
-        return dtoList;
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     @Override
     public Optional<AnimalVisitedLocationDto> findById(Long id) {
         log.info("searching animal visited location by id "+id);
@@ -139,90 +150,241 @@ public class AnimalVisitedLocationServiceImpl implements AnimalVisitedLocationSe
         }
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
+    @Override
+    public List<AnimalVisitedLocationDto> findByLocationPoint(Long locationPointId, Long afterId, int size) throws ResponseStatusException {
+        log.info("get visits of location point {} after id {}", locationPointId, afterId);
+        checkLocationPoint(locationPointId);
+        Pageable pageable = PageRequest.of(0, pageSize(size));
+        List<AnimalVisitedLocationDto> list = new ArrayList();
+        animalVisitedLocationRepository.findViewsByLocationPoint(locationPointId, afterId==null ? 0L : afterId, pageable)
+                .forEach(view->list.add(animalVisitedLocationMapper.toDto(view)));
+        return list;
+    }
+
+    @Override
+    public int pageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public void checkExists(Long animalId, Long pointId) throws ResponseStatusException {
+        if (!animalRepository.existsById(animalId))
+        {
+            String message = "animal with id "+animalId+" was not found";
+            log.warn(message);
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, message);
+        }
+        checkLocationPoint(pointId);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public long countByLocationPoint(Long locationPointId) throws ResponseStatusException {
+        log.info("count visits of location point {}", locationPointId);
+        checkLocationPoint(locationPointId);
+        return animalVisitedLocationRepository.countByLocationPoint_Id(locationPointId);
+    }
+
+    private void checkLocationPoint(Long locationPointId) throws ResponseStatusException
+    {
+        if (!locationPointRepository.existsById(locationPointId))
+        {
+            String message = "location point with id "+locationPointId+" was not found";
+            log.warn(message);
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, message);
+        }
+    }
+
+    /**
+     * добавление выполняется в отдельной транзакции на каждую попытку:
+     * конкурентное добавление к тому же животному увеличивает его версию,
+     * поэтому проигравшая транзакция откатывается и повторяется заново
+     */
     @Override
     public Optional<AnimalVisitedLocationDto> add(Long animalId, Long pointId) throws ResponseStatusException {
         log.info("adding new animal visited location");
         if (animalId!=null && pointId!=null)
         {
-            Optional<Animal> animalBox = animalRepository.findById(animalId);
-            Optional<LocationPoint> locationPointBox = locationPointRepository.findById(pointId);
-            if (animalBox.isPresent() && locationPointBox.isPresent())
+            for (int attempt = 1; ; attempt++)
             {
-                Animal animal = animalBox.get();
-                LocationPoint locationPoint = locationPointBox.get();
-                List<AnimalVisitedLocation> list = animal.getAnimalVisitedLocations();
-                if (animal.getLifeStatus().equals(LifeStatus.DEAD))
-                {
-                    String message = "trying to add location point to dead animal";
-                    log.warn(message);
-                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
-                }
-                //попытка добавить точку локации, равную точке чипирования
-                if (animal.getChippingLocationId().getId().equals(pointId))
+                try
                 {
-                    String message = "trying to add a location point equal to the chipping point";
-                    log.warn(message);
-                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST,message);
+                    return transactionTemplate.execute(status -> appendVisit(animalId, pointId));
                 }
-
-                //попытка добавить точку локации, в которой уже находится животное
-                Boolean isValid = true;
-                if (list!=null)
+                catch (RejectedAppendException ex)
                 {
-                    if (list.size()>0)
-                        isValid = !(list.get(list.size()-1).getId().equals(pointId));
+                    throw ex.getCause();
                 }
-                if (!isValid)
+                catch (OptimisticLockingFailureException ex)
                 {
-                    String message = "trying to add a location point where the animal is already located";
-                    log.warn(message);
-                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
+                    if (attempt>=maxAppendAttempts)
+                    {
+                        String message = "animal with id "+animalId+" is concurrently modified, append failed after "+attempt+" attempts";
+                        log.warn(message);
+                        throw new ResponseStatusException(HttpStatus.CONFLICT, message);
+                    }
+                    log.info("concurrent append to animal with id {}, retry {}", animalId, attempt);
+                    backoff(attempt);
                 }
+            }
+        }
+        else
+        {
+            String message = "input data is empty";
+            log.warn(message);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
+        }
+    }
 
-                AnimalVisitedLocation entity = new AnimalVisitedLocation();
-                entity.setLocationPoint(locationPoint);
-                entity.setDateTimeOfVisitLocationPoint(new Date());
-                entity = animalVisitedLocationRepository.save(entity);
-                if (entity!=null)
+    private Optional<AnimalVisitedLocationDto> appendVisit(Long animalId, Long pointId)
+    {
+        try
+        {
+            return appendVisitOrReject(animalId, pointId);
+        }
+        catch (ResponseStatusException ex)
+        {
+            throw new RejectedAppendException(ex);
+        }
+    }
+
+    private Optional<AnimalVisitedLocationDto> appendVisitOrReject(Long animalId, Long pointId) throws ResponseStatusException
+    {
+        Optional<Animal> animalBox = animalRepository.findForUpdateById(animalId);
+        Optional<LocationPoint> locationPointBox = locationPointRepository.findById(pointId);
+        if (animalBox.isPresent() && locationPointBox.isPresent())
+        {
+            Animal animal = animalBox.get();
+            LocationPoint locationPoint = locationPointBox.get();
+            long[] visitIds = IdArrays.parse(animal.getVisitedLocationIds());
+            checkAppend(animal, visitIds, pointId);
+
+            AnimalVisitedLocation entity = new AnimalVisitedLocation();
+            entity.setLocationPoint(locationPoint);
+            entity.setDateTimeOfVisitLocationPoint(DateTimeParser.now());
+            entity = animalVisitedLocationRepository.save(entity);
+            if (entity!=null)
+            {
+                visitIds = Arrays.copyOf(visitIds, visitIds.length + 1);
+                visitIds[visitIds.length - 1] = entity.getId();
+                animal.setVisitedLocationIds(IdArrays.join(visitIds));
+                animal = animalRepository.save(animal);
+                if (animal!=null)
                 {
-                    list.add(entity);
-                    animal.setAnimalVisitedLocations(list);
-                    animal = animalRepository.save(animal);
-                    if (animal!=null)
-                    {
-                        log.info("adding success");
-                    }
-                    else
-                    {
-                        log.warn("animal save failed");
-                        //rollback
-                        animalVisitedLocationRepository.delete(entity);
-                        entity = null;
-                    }
+                    log.info("adding success");
+                    animalEventStream.visited(animal, entity);
                 }
                 else
                 {
-                    log.warn("animalVisited location save failed");
+                    log.warn("animal save failed");
+                    //rollback
+                    animalVisitedLocationRepository.delete(entity);
+                    entity = null;
                 }
-
-                return Optional.ofNullable(animalVisitedLocationMapper.toDto(entity));
             }
             else
             {
-                String message = "animal with id "+animalId+" or locationPoint with id "+pointId+" wqs not found";
-                log.warn(message);
-                throw new ResponseStatusException(HttpStatus.NOT_FOUND, message);
+                log.warn("animalVisited location save failed");
             }
+
+            return Optional.ofNullable(animalVisitedLocationMapper.toDto(entity));
         }
         else
         {
-            String message = "input data is empty";
+            String message = "animal with id "+animalId+" or locationPoint with id "+pointId+" wqs not found";
+            log.warn(message);
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, message);
+        }
+    }
+
+    /**
+     * правила добавления посещенной точки для загруженного животного,
+     * точка последнего посещения читается одним запросом по последнему id столбца visited_locations
+     * @param animal
+     * @param visitIds
+     * @param pointId
+     * @throws ResponseStatusException
+     */
+    private void checkAppend(Animal animal, long[] visitIds, Long pointId) throws ResponseStatusException
+    {
+        Long lastPointId = null;
+        if (visitIds.length>0)
+        {
+            Optional<AnimalVisitedLocation> box = animalVisitedLocationRepository.findById(visitIds[visitIds.length-1]);
+            if (box.isPresent())
+            {
+                lastPointId = box.get().getLocationPoint().getId();
+            }
+        }
+        checkAppend(animal.getLifeStatus(), animal.getChippingLocationId().getId(), lastPointId, pointId);
+    }
+
+    /**
+     * правила добавления посещенной точки, общие для синхронного и пакетного (VisitBatchWriter) добавления
+     * @param lifeStatus
+     * @param chippingLocationId
+     * @param lastPointId точка последнего посещения или null, если посещений нет
+     * @param pointId
+     * @throws ResponseStatusException
+     */
+    static void checkAppend(LifeStatus lifeStatus, Long chippingLocationId, Long lastPointId, Long pointId) throws ResponseStatusException
+    {
+        if (lifeStatus.equals(LifeStatus.DEAD))
+        {
+            String message = "trying to add location point to dead animal";
+            log.warn(message);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
+        }
+        //попытка добавить точку локации, равную точке чипирования
+        if (chippingLocationId.equals(pointId))
+        {
+            String message = "trying to add a location point equal to the chipping point";
+            log.warn(message);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,message);
+        }
+
+        //попытка добавить точку локации, в которой уже находится животное
+        Boolean isValid = lastPointId==null || !lastPointId.equals(pointId);
+        if (!isValid)
+        {
+            String message = "trying to add a location point where the animal is already located";
             log.warn(message);
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
         }
     }
 
+    private void backoff(int attempt) throws ResponseStatusException
+    {
+        try
+        {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(1, 5L*attempt+1));
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "append interrupted");
+        }
+    }
+
+    /**
+     * переносит отказ бизнес правил через TransactionTemplate (с откатом транзакции)
+     */
+    private static class RejectedAppendException extends RuntimeException {
+
+        RejectedAppendException(ResponseStatusException cause)
+        {
+            super(cause.getMessage(), cause, false, false);
+        }
+
+        @Override
+        public synchronized ResponseStatusException getCause()
+        {
+            return (ResponseStatusException) super.getCause();
+        }
+    }
+
     @Transactional
     @Override
     public Optional<AnimalVisitedLocationDto> update(Long animalId, AnimalVisitedLocationUpdateDto dto) throws ResponseStatusException {
@@ -236,7 +398,7 @@ public class AnimalVisitedLocationServiceImpl implements AnimalVisitedLocationSe
             if (animalBox.isPresent() && animalVisitedLocationBox.isPresent() && locationPointBox.isPresent())
             {
                 Animal animal = animalBox.get();
-                List<AnimalVisitedLocation> list = animal.getAnimalVisitedLocations();
+                List<AnimalVisitedLocation> list = animalVisitedLocationRepository.findAllInOrder(IdArrays.parse(animal.getVisitedLocationIds()));
                 Boolean isValid = false;
                 if (list!=null)
                 {
@@ -348,7 +510,7 @@ public class AnimalVisitedLocationServiceImpl implements AnimalVisitedLocationSe
             if (animalBox.isPresent() && animalVisitedLocationBox.isPresent())
             {
                 Animal animal = animalBox.get();
-                List<AnimalVisitedLocation> list = animal.getAnimalVisitedLocations();
+                List<AnimalVisitedLocation> list = animalVisitedLocationRepository.findAllInOrder(IdArrays.parse(animal.getVisitedLocationIds()));
                 Integer index = -1;
                 if (list!=null)
                 {
@@ -377,8 +539,8 @@ public class AnimalVisitedLocationServiceImpl implements AnimalVisitedLocationSe
                     }
                 }
                 animalVisitedLocationRepository.deleteById(list.get(index).getId());
-                list.remove(index);
-                animal.setAnimalVisitedLocations(list);
+                list.remove(index.intValue());
+                animal.setVisitedLocationIds(IdArrays.join(list, AnimalVisitedLocation::getId));
                 animal = animalRepository.save(animal);
             }
             else
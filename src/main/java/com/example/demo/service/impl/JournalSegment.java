@@ -0,0 +1,221 @@
+package com.example.demo.service.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * сегмент журнала посещений - файл фиксированного размера, отображенный в память
+ * запись занимает RECORD_SIZE байт: номер, animalId, pointId, время посещения (мс) и CRC32 первых 32 байт;
+ * номер записи в сегменте определяется ее слотом (номер - firstSequence), поэтому запись
+ * с неверной контрольной суммой или чужим номером считается концом журнала
+ * имя файла - первый номер сегмента, дополненный нулями до 20 знаков
+ * @author ROMAN
+ * @date 2023-03-12
+ * @version 1.0
+ */
+final class JournalSegment implements Closeable {
+
+    static final String SUFFIX = ".journal";
+
+    static final int RECORD_SIZE = 36;
+
+    private static final int CHECKSUM_OFFSET = 32;
+
+    private final Path path;
+
+    private final long firstSequence;
+
+    private final int capacity;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer buffer;
+
+    private JournalSegment(Path path, long firstSequence, int capacity, FileChannel channel, MappedByteBuffer buffer)
+    {
+        this.path = path;
+        this.firstSequence = firstSequence;
+        this.capacity = capacity;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * открытие сегмента, новый файл создается размером capacity записей,
+     * существующий открывается с его собственным размером
+     * @param directory
+     * @param firstSequence
+     * @param capacity
+     * @return segment
+     * @throws IOException
+     */
+    static JournalSegment open(Path directory, long firstSequence, int capacity) throws IOException
+    {
+        Path path = directory.resolve(fileName(firstSequence));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try
+        {
+            long size = channel.size()>=RECORD_SIZE ? channel.size() - channel.size()%RECORD_SIZE : (long) capacity*RECORD_SIZE;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new JournalSegment(path, firstSequence, (int) (size/RECORD_SIZE), channel, buffer);
+        }
+        catch (IOException | RuntimeException ex)
+        {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    static String fileName(long firstSequence)
+    {
+        return String.format("%020d%s", firstSequence, SUFFIX);
+    }
+
+    /**
+     * первый номер сегмента по имени файла
+     * @param path
+     * @return first sequence or -1 if the name is not a segment name
+     */
+    static long parseFirstSequence(Path path)
+    {
+        String name = path.getFileName().toString();
+        if (!name.endsWith(SUFFIX))
+        {
+            return -1;
+        }
+        try
+        {
+            return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        }
+        catch (NumberFormatException ex)
+        {
+            return -1;
+        }
+    }
+
+    long firstSequence()
+    {
+        return firstSequence;
+    }
+
+    long lastSequence()
+    {
+        return firstSequence + capacity - 1;
+    }
+
+    int capacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * запись в слот, контрольная сумма пишется последней
+     * вызывается только единственным пишущим потоком
+     */
+    void write(long sequence, long animalId, long pointId, long visitedAt, CRC32 checksum)
+    {
+        int offset = offset(sequence);
+        buffer.putLong(offset, sequence);
+        buffer.putLong(offset + 8, animalId);
+        buffer.putLong(offset + 16, pointId);
+        buffer.putLong(offset + 24, visitedAt);
+        buffer.putInt(offset + CHECKSUM_OFFSET, checksum(offset, checksum));
+    }
+
+    /**
+     * чтение записи с проверкой номера и контрольной суммы
+     * @param sequence
+     * @param record массив из 3 элементов: animalId, pointId, время посещения
+     * @param checksum
+     * @return true if the record is valid
+     */
+    boolean read(long sequence, long[] record, CRC32 checksum)
+    {
+        int offset = offset(sequence);
+        if (buffer.getLong(offset)!=sequence || buffer.getInt(offset + CHECKSUM_OFFSET)!=checksum(offset, checksum))
+        {
+            return false;
+        }
+        record[0] = buffer.getLong(offset + 8);
+        record[1] = buffer.getLong(offset + 16);
+        record[2] = buffer.getLong(offset + 24);
+        return true;
+    }
+
+    /**
+     * время посещения без проверки контрольной суммы (для метрики отставания)
+     * @param sequence
+     * @return epoch millis
+     */
+    long visitedAt(long sequence)
+    {
+        return buffer.getLong(offset(sequence) + 24);
+    }
+
+    /**
+     * обнуление слотов начиная с sequence, чтобы остатки записей после оборванного хвоста
+     * не были приняты за корректные при следующем восстановлении
+     * @param sequence
+     */
+    void clearFrom(long sequence)
+    {
+        byte[] zeros = new byte[RECORD_SIZE*256];
+        int offset = offset(sequence);
+        int end = capacity*RECORD_SIZE;
+        while (offset<end)
+        {
+            int length = Math.min(zeros.length, end - offset);
+            ByteBuffer view = buffer.duplicate();
+            view.position(offset);
+            view.put(zeros, 0, length);
+            offset += length;
+        }
+        force();
+    }
+
+    /**
+     * сброс отображенных страниц на диск (fsync)
+     */
+    void force()
+    {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    /**
+     * закрытие и удаление файла сегмента; отображение освобождается сборщиком мусора
+     * @throws IOException
+     */
+    void delete() throws IOException
+    {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    private int offset(long sequence)
+    {
+        return (int) (sequence - firstSequence)*RECORD_SIZE;
+    }
+
+    private int checksum(int offset, CRC32 checksum)
+    {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.limit(offset + CHECKSUM_OFFSET);
+        checksum.reset();
+        checksum.update(view);
+        return (int) checksum.getValue();
+    }
+}
@@ -1,20 +1,30 @@
 package com.example.demo.service.impl;
 
+import com.example.demo.config.CacheInvalidationBus;
 import com.example.demo.config.ResponseStatusException;
-import com.example.demo.model.Animal;
 import com.example.demo.model.LocationPoint;
 import com.example.demo.repository.AnimalRepository;
 import com.example.demo.repository.AnimalVisitedLocationRepository;
 import com.example.demo.repository.LocationPointRepository;
+import com.example.demo.repository.projection.LocationPointView;
+import com.example.demo.repository.projection.VersionView;
 import com.example.demo.service.LocationPointService;
+import com.example.demo.service.dto.LocationPointBulkDto;
+import com.example.demo.service.dto.LocationPointBulkResultDto;
 import com.example.demo.service.dto.LocationPointDto;
+import com.example.demo.service.dto.MultiGetResultDto;
 import com.example.demo.service.mapper.LocationPointMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import java.util.Optional;
+import org.springframework.transaction.support.TransactionTemplate;
+import javax.persistence.EntityManagerFactory;
+import java.util.*;
 
 /**
  * реализация бизнес логики интерфейса LocationPointService
@@ -26,6 +36,29 @@ import java.util.Optional;
 @Service
 public class LocationPointServiceImpl implements LocationPointService {
 
+    /**
+     * вставка порции точек с пропуском существующих координат
+     * параметры: ord int[], latitude float8[], longitude float8[]
+     * возвращает id для каждой входной строки: вставленной в этом запросе или существовавшей ранее
+     */
+    private static final String BULK_INSERT =
+            "with input as (select * from unnest(?::int[], ?::float8[], ?::float8[]) as i(ord, latitude, longitude))," +
+            " inserted as (" +
+            " insert into location_point (latitude, longitude) select distinct latitude, longitude from input" +
+            " on conflict (latitude, longitude) do nothing returning id, latitude, longitude)" +
+            " select input.ord, coalesce(inserted.id, existing.id) as id, inserted.id is not null as created from input" +
+            " left join inserted on inserted.latitude = input.latitude and inserted.longitude = input.longitude" +
+            " left join location_point existing on existing.latitude = input.latitude and existing.longitude = input.longitude" +
+            " order by input.ord";
+
+    /**
+     * id точек, вставленных конкурентными транзакциями после снимка BULK_INSERT, одним запросом на порцию
+     * параметры: latitude float8[], longitude float8[]
+     */
+    private static final String BULK_SELECT =
+            "select id, latitude, longitude from location_point" +
+            " where (latitude, longitude) = any(select * from unnest(?::float8[], ?::float8[]))";
+
     private LocationPointRepository locationPointRepository;
 
     private AnimalRepository animalRepository;
@@ -34,6 +67,17 @@ public class LocationPointServiceImpl implements LocationPointService {
 
     private LocationPointMapper locationPointMapper;
 
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private EntityManagerFactory entityManagerFactory;
+
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${location.points.bulk.chunk-size:1000}")
+    private int bulkChunkSize;
+
     @Autowired
     public void setLocationPointRepository(LocationPointRepository locationPointRepository) {
         this.locationPointRepository = locationPointRepository;
@@ -54,6 +98,26 @@ public class LocationPointServiceImpl implements LocationPointService {
         this.locationPointMapper = locationPointMapper;
     }
 
+    @Autowired
+    public void setCacheInvalidationBus(CacheInvalidationBus cacheInvalidationBus) {
+        this.cacheInvalidationBus = cacheInvalidationBus;
+    }
+
+    @Autowired
+    public void setJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Autowired
+    public void setEntityManagerFactory(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Autowired
+    public void setTransactionTemplate(TransactionTemplate transactionTemplate) {
+        this.transactionTemplate = transactionTemplate;
+    }
+
     /*@Autowired
     public LocationPointServiceImpl( LocationPointRepository locationPointRepository, AnimalRepository animalRepository, AnimalVisitedLocationRepository animalVisitedLocationRepository, LocationPointMapper locationPointMapper) {
         this.locationPointRepository = locationPointRepository;
@@ -62,11 +126,11 @@ public class LocationPointServiceImpl implements LocationPointService {
         this.locationPointMapper = locationPointMapper;
     }*/
 
-    @Transactional
+    @Transactional(readOnly = true)
     @Override
     public Optional<LocationPointDto> findById(Long id) {
         log.info("get location point by id "+id);
-        Optional<LocationPoint> box = locationPointRepository.findById(id);
+        Optional<LocationPointView> box = locationPointRepository.findViewById(id);
         if (box.isPresent())
         {
             return Optional.of(locationPointMapper.toDto(box.get()));
@@ -78,6 +142,22 @@ public class LocationPointServiceImpl implements LocationPointService {
         }
     }
 
+    @Transactional(readOnly = true)
+    @Override
+    public Optional<VersionView> findVersionById(Long id) {
+        log.info("get version of location point with id "+id);
+        return locationPointRepository.findVersionById(id);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<MultiGetResultDto<LocationPointDto>> findAllById(long[] ids) throws ResponseStatusException {
+        log.info("get {} location points by ids", ids!=null ? ids.length : 0);
+        MultiGet.checkIds(ids);
+        Map<Long, LocationPoint> found = MultiGet.loadCachedFirst(entityManagerFactory.getCache(), LocationPoint.class, ids, locationPointRepository, LocationPoint::getId);
+        return MultiGet.inRequestOrder(ids, found, locationPointMapper::toDto);
+    }
+
     @Transactional
     @Override
     public Optional<LocationPointDto> add(LocationPointDto dto) throws ResponseStatusException {
@@ -88,6 +168,7 @@ public class LocationPointServiceImpl implements LocationPointService {
             if (!box.isPresent())
             {
                 LocationPoint entity = locationPointRepository.save(locationPointMapper.toEntity(dto));
+                cacheInvalidationBus.publish(LocationPoint.class, entity.getId());
                 log.info("adding locationPoint success");
                 return Optional.ofNullable(locationPointMapper.toDto(entity));
             }
@@ -106,6 +187,97 @@ public class LocationPointServiceImpl implements LocationPointService {
         }
     }
 
+    @Override
+    public List<LocationPointBulkResultDto> addAll(LocationPointBulkDto dto) {
+        List<LocationPointDto> points = dto.getPoints();
+        log.info("bulk adding {} location points", points.size());
+        LocationPointBulkResultDto[] results = new LocationPointBulkResultDto[points.size()];
+        Set<Long> seenIds = new HashSet();
+        Long createdId = null;
+        try
+        {
+            for (int from = 0; from < points.size(); from += bulkChunkSize)
+            {
+                int to = Math.min(from + bulkChunkSize, points.size());
+                Integer[] ord = new Integer[to - from];
+                Double[] latitude = new Double[to - from];
+                Double[] longitude = new Double[to - from];
+                for (int i = from; i < to; i++)
+                {
+                    ord[i - from] = i;
+                    latitude[i - from] = points.get(i).getLatitude();
+                    longitude[i - from] = points.get(i).getLongitude();
+                }
+                List<Map<String, Object>> rows = transactionTemplate.execute(status -> insertChunk(ord, latitude, longitude));
+                log.info("bulk adding location points: chunk of {} points committed", ord.length);
+                for (Map<String, Object> row: rows)
+                {
+                    int i = ((Number) row.get("ord")).intValue();
+                    Number id = (Number) row.get("id");
+                    Boolean isCreated = (Boolean) row.get("created") && seenIds.add(id.longValue());
+                    if (isCreated)
+                    {
+                        createdId = id.longValue();
+                    }
+                    results[i] = new LocationPointBulkResultDto(id.longValue(), latitude[i - from], longitude[i - from], isCreated);
+                }
+            }
+        }
+        finally
+        {
+            //порции фиксируются по отдельности, поэтому кеш сбрасывается и при ошибке в одной из следующих порций
+            if (createdId!=null)
+            {
+                entityManagerFactory.unwrap(SessionFactory.class).getCache().evictDefaultQueryRegion();
+                cacheInvalidationBus.publish(LocationPoint.class, createdId);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * вставка порции в текущей транзакции; id точек, вставленных конкурентной транзакцией
+     * после начала запроса (BULK_INSERT вернул null), дочитываются одним запросом BULK_SELECT
+     * @param ord
+     * @param latitude
+     * @param longitude
+     * @return rows with ord, id and created
+     */
+    private List<Map<String, Object>> insertChunk(Integer[] ord, Double[] latitude, Double[] longitude)
+    {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(BULK_INSERT, ord, latitude, longitude);
+        List<Map<String, Object>> missing = new ArrayList();
+        for (Map<String, Object> row: rows)
+        {
+            if (row.get("id")==null)
+            {
+                missing.add(row);
+            }
+        }
+        if (!missing.isEmpty())
+        {
+            int first = ord[0];
+            Double[] missingLatitude = new Double[missing.size()];
+            Double[] missingLongitude = new Double[missing.size()];
+            for (int j = 0; j < missing.size(); j++)
+            {
+                int i = ((Number) missing.get(j).get("ord")).intValue() - first;
+                missingLatitude[j] = latitude[i];
+                missingLongitude[j] = longitude[i];
+            }
+            Map<List<Double>, Long> found = new HashMap();
+            jdbcTemplate.query(BULK_SELECT, rs -> {
+                found.put(Arrays.asList(rs.getDouble("latitude"), rs.getDouble("longitude")), rs.getLong("id"));
+            }, missingLatitude, missingLongitude);
+            for (Map<String, Object> row: missing)
+            {
+                int i = ((Number) row.get("ord")).intValue() - first;
+                row.put("id", found.get(Arrays.asList(latitude[i], longitude[i])));
+            }
+        }
+        return rows;
+    }
+
     @Transactional
     @Override
     public Optional<LocationPointDto> update(LocationPointDto dto) throws ResponseStatusException{
@@ -116,15 +288,23 @@ public class LocationPointServiceImpl implements LocationPointService {
             if (box.isPresent())
             {
                 LocationPoint entity = box.get();
-                Boolean isValid = !locationPointRepository.findByLatitudeAndLongitude(dto.getLatitude(), dto.getLongitude()).isPresent();
+                Boolean isValid = !locationPointRepository.existsByLatitudeAndLongitude(dto.getLatitude(), dto.getLongitude());
                 if (!isValid)
                 {
                     String message = "locationPoint with latitude "+dto.getLatitude()+" and longitude "+dto.getLongitude()+" is already exist";
                     log.warn(message);
                     throw new ResponseStatusException(HttpStatus.CONFLICT, message);
                 }
+                if (dto.getVersion()!=null && !dto.getVersion().equals(entity.getVersion()))
+                {
+                    String message = "locationPoint with id "+entity.getId()+" was modified, expected version "+dto.getVersion()+" but found "+entity.getVersion();
+                    log.warn(message);
+                    throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, message);
+                }
+                dto.setVersion(entity.getVersion());
                 entity = locationPointMapper.toEntity(dto);
-                entity = locationPointRepository.save(entity);
+                entity = locationPointRepository.saveAndFlush(entity);
+                cacheInvalidationBus.publish(LocationPoint.class, entity.getId());
                 return Optional.ofNullable(locationPointMapper.toDto(entity));
             }
             else
@@ -147,18 +327,18 @@ public class LocationPointServiceImpl implements LocationPointService {
         log.info("removing location point with id {}", id);
         if (id!=null)
         {
-            Optional<LocationPoint> box = locationPointRepository.findById(id);
-            if (box.isPresent())
+            if (locationPointRepository.existsById(id))
             {
-                Optional<Animal> animalBox = animalRepository.findByChippingLocationId_Id(id);
-                if (!animalBox.isPresent())
+                Boolean isUsed = animalRepository.existsByChippingLocationId_Id(id) || animalVisitedLocationRepository.existsByLocationPoint_Id(id);
+                if (!isUsed)
                 {
                     locationPointRepository.deleteById(id);
+                    cacheInvalidationBus.publish(LocationPoint.class, id);
                     log.info("locationPoint removing success");
                 }
                 else
                 {
-                    String message = "location point with id "+id+" use in animal entity, id "+animalBox.get().getId();
+                    String message = "location point with id "+id+" use in animal entity";
                     log.warn(message);
                     throw new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
                 }
@@ -0,0 +1,103 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.config.IdArrays;
+import com.example.demo.config.ResponseStatusException;
+import com.example.demo.service.dto.MultiGetResultDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.http.HttpStatus;
+import javax.persistence.Cache;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * общие шаги множественного получения сущностей по списку id (GET ...?ids=)
+ * результат возвращается в порядке запроса, включая повторы, с явным признаком found
+ * @author ROMAN
+ * @date 2023-03-14
+ * @version 1.0
+ */
+@Slf4j
+final class MultiGet {
+
+    static final int MAX_IDS = 1000;
+
+    private MultiGet() {
+    }
+
+    /**
+     * проверка списка id
+     * @param ids
+     * @throws ResponseStatusException 400 - список пуст, длиннее MAX_IDS или содержит неположительный id
+     */
+    static void checkIds(long[] ids) throws ResponseStatusException
+    {
+        Boolean isValid = ids!=null && ids.length>0 && ids.length<=MAX_IDS;
+        if (isValid)
+        {
+            for (long id: ids)
+            {
+                isValid = isValid && id>0;
+            }
+        }
+        if (!isValid)
+        {
+            String message = "ids are mandatory, must be positive and no more than "+MAX_IDS;
+            log.warn(message);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
+        }
+    }
+
+    /**
+     * загрузка сущностей, закэшированных во втором уровне: найденные в кэше читаются по одной
+     * через findById без обращения к базе, остальные - одним findAllById
+     * @param cache
+     * @param type
+     * @param ids
+     * @param repository
+     * @param id
+     * @return entities by id
+     */
+    static <E> Map<Long, E> loadCachedFirst(Cache cache, Class<E> type, long[] ids, JpaRepository<E, Long> repository, ToLongFunction<E> id)
+    {
+        Map<Long, E> found = new HashMap();
+        List<Long> missing = new ArrayList();
+        for (long key: IdArrays.distinct(ids))
+        {
+            if (cache.contains(type, key))
+            {
+                repository.findById(key).ifPresent(entity->found.put(key, entity));
+            }
+            else
+            {
+                missing.add(key);
+            }
+        }
+        if (!missing.isEmpty())
+        {
+            repository.findAllById(missing).forEach(entity->found.put(id.applyAsLong(entity), entity));
+        }
+        return found;
+    }
+
+    /**
+     * результаты в порядке запроса
+     * @param ids
+     * @param found
+     * @param mapper
+     * @return list of results, one for each requested id
+     */
+    static <E, T> List<MultiGetResultDto<T>> inRequestOrder(long[] ids, Map<Long, E> found, Function<E, T> mapper)
+    {
+        Map<Long, T> values = new HashMap();
+        found.forEach((key, entity)->values.put(key, mapper.apply(entity)));
+        List<MultiGetResultDto<T>> list = new ArrayList(ids.length);
+        for (long id: ids)
+        {
+            T value = values.get(id);
+            list.add(new MultiGetResultDto<>(id, value!=null, value));
+        }
+        return list;
+    }
+}
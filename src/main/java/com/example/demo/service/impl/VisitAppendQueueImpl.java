@@ -0,0 +1,215 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.config.ResponseStatusException;
+import com.example.demo.service.VisitAppendQueue;
+import com.example.demo.service.dto.AnimalVisitedLocationDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * реализация очереди отложенной записи посещенных точек
+ * производители (потоки запросов) кладут добавления в ограниченную очередь, единственный поток записи
+ * забирает их пакетами (не более batchSize или по истечении lingerMillis после первого элемента)
+ * и фиксирует пакет одной транзакцией через VisitBatchWriter; отклоненные добавления не откатывают остальные
+ * конкурентное изменение животного откатывает пакет целиком, и он повторяется до maxAttempts раз
+ * @author ROMAN
+ * @date 2023-03-11
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "animal.visits.write-behind.enabled", havingValue = "true")
+public class VisitAppendQueueImpl implements VisitAppendQueue, InitializingBean, DisposableBean {
+
+    private static final long POLL_MILLIS = 100;
+
+    private final VisitBatchWriter visitBatchWriter;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final BlockingQueue<PendingAppend> queue;
+
+    private final int batchSize;
+
+    private final long lingerNanos;
+
+    private final int maxAttempts;
+
+    private final Thread writer;
+
+    private volatile boolean running;
+
+    @Autowired
+    public VisitAppendQueueImpl(VisitBatchWriter visitBatchWriter, TransactionTemplate transactionTemplate,
+                                @Value("${animal.visits.write-behind.capacity:10000}") int capacity,
+                                @Value("${animal.visits.write-behind.batch-size:500}") int batchSize,
+                                @Value("${animal.visits.write-behind.linger-millis:5}") long lingerMillis,
+                                @Value("${animal.visits.append.max-attempts:5}") int maxAttempts) {
+        this.visitBatchWriter = visitBatchWriter;
+        this.transactionTemplate = transactionTemplate;
+        this.queue = new ArrayBlockingQueue(capacity);
+        this.batchSize = batchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.maxAttempts = maxAttempts;
+        this.writer = new Thread(this::run, "visit-append-writer");
+        this.writer.setDaemon(true);
+    }
+
+    @Override
+    public void afterPropertiesSet()
+    {
+        running = true;
+        writer.start();
+        log.info("visit write-behind queue started, capacity {}, batch size {}", queue.remainingCapacity(), batchSize);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException
+    {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        List<PendingAppend> rest = new ArrayList();
+        queue.drainTo(rest);
+        for (PendingAppend pending: rest)
+        {
+            pending.result.completeExceptionally(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "append queue is stopped"));
+        }
+        log.info("visit write-behind queue stopped, {} appends rejected", rest.size());
+    }
+
+    @Override
+    public CompletableFuture<AnimalVisitedLocationDto> submit(Long animalId, Long pointId)
+    {
+        PendingAppend pending = new PendingAppend(animalId, pointId);
+        if (!running)
+        {
+            pending.result.completeExceptionally(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "append queue is stopped"));
+        }
+        else if (!queue.offer(pending))
+        {
+            String message = "append queue is full";
+            log.warn(message);
+            pending.result.completeExceptionally(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, message));
+        }
+        return pending.result;
+    }
+
+    private void run()
+    {
+        List<PendingAppend> batch = new ArrayList(batchSize);
+        while (running || !queue.isEmpty())
+        {
+            try
+            {
+                PendingAppend first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first==null)
+                {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size()<batchSize)
+                {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size()>=batchSize || remaining<=0)
+                    {
+                        break;
+                    }
+                    PendingAppend next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next==null)
+                    {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+                running = false;
+                for (PendingAppend pending: batch)
+                {
+                    pending.result.completeExceptionally(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "append queue is stopped"));
+                }
+                return;
+            }
+            catch (RuntimeException ex)
+            {
+                log.error("visit batch failed: {}", ex.getMessage());
+                for (PendingAppend pending: batch)
+                {
+                    pending.result.completeExceptionally(ex);
+                }
+            }
+            finally
+            {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * фиксация пакета с повтором при конкурентном изменении животных;
+     * результаты завершаются только после успешной фиксации
+     * @param batch
+     */
+    private void flush(List<PendingAppend> batch)
+    {
+        for (int attempt = 1; ; attempt++)
+        {
+            try
+            {
+                transactionTemplate.executeWithoutResult(status -> visitBatchWriter.append(batch));
+                break;
+            }
+            catch (OptimisticLockingFailureException ex)
+            {
+                if (attempt>=maxAttempts)
+                {
+                    throw ex;
+                }
+                log.info("concurrent append in visit batch of {}, retry {}", batch.size(), attempt);
+            }
+        }
+        for (PendingAppend pending: batch)
+        {
+            if (pending.rejection!=null)
+            {
+                pending.result.completeExceptionally(pending.rejection);
+            }
+            else
+            {
+                pending.result.complete(pending.visit);
+            }
+        }
+        log.info("visit batch of {} committed", batch.size());
+    }
+
+    /**
+     * добавление в очереди вместе с ожидающим его результатом
+     */
+    private static class PendingAppend extends VisitBatchWriter.Item {
+
+        private final CompletableFuture<AnimalVisitedLocationDto> result = new CompletableFuture();
+
+        PendingAppend(Long animalId, Long pointId)
+        {
+            super(animalId, pointId, null);
+        }
+    }
+}
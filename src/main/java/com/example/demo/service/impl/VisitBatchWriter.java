@@ -0,0 +1,217 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.config.DateTimeParser;
+import com.example.demo.config.IdArrays;
+import com.example.demo.config.ResponseStatusException;
+import com.example.demo.model.AnimalVisitedLocation;
+import com.example.demo.model.LocationPoint;
+import com.example.demo.repository.AnimalRepository;
+import com.example.demo.repository.AnimalVisitedLocationRepository;
+import com.example.demo.repository.LocationPointRepository;
+import com.example.demo.repository.projection.AnimalView;
+import com.example.demo.service.AnimalEventStream;
+import com.example.demo.service.dto.AnimalVisitedLocationDto;
+import com.example.demo.service.mapper.AnimalVisitedLocationMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import java.time.OffsetDateTime;
+import java.util.*;
+
+/**
+ * запись пакета добавлений посещенных точек в текущей транзакции
+ * животные читаются проекциями AnimalView, а последние посещения - одним запросом,
+ * поэтому список посещений не загружается;
+ * правила AnimalVisitedLocationServiceImpl.checkAppend проверяются по порядку поступления с учетом
+ * уже добавленных в этом пакете посещений; новые id дописываются в столбец visited_locations
+ * пакетным UPDATE с проверкой версии (конкурентное изменение откатывает пакет целиком)
+ * отклоненное добавление сохраняет причину в элементе и не откатывает остальные
+ * используется очередью отложенной записи и журналом посещений
+ * @author ROMAN
+ * @date 2023-03-12
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class VisitBatchWriter {
+
+    /**
+     * параметры: visited_locations, id, version
+     */
+    private static final String APPEND_VISITS =
+            "update animal set visited_locations = ?, version = version + 1, updated_at = now() where id = ? and version = ?";
+
+    private final AnimalRepository animalRepository;
+
+    private final LocationPointRepository locationPointRepository;
+
+    private final AnimalVisitedLocationRepository animalVisitedLocationRepository;
+
+    private final AnimalVisitedLocationMapper animalVisitedLocationMapper;
+
+    private final AnimalEventStream animalEventStream;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public VisitBatchWriter(AnimalRepository animalRepository, LocationPointRepository locationPointRepository, AnimalVisitedLocationRepository animalVisitedLocationRepository,
+                            AnimalVisitedLocationMapper animalVisitedLocationMapper, AnimalEventStream animalEventStream, JdbcTemplate jdbcTemplate) {
+        this.animalRepository = animalRepository;
+        this.locationPointRepository = locationPointRepository;
+        this.animalVisitedLocationRepository = animalVisitedLocationRepository;
+        this.animalVisitedLocationMapper = animalVisitedLocationMapper;
+        this.animalEventStream = animalEventStream;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * запись пакета, должна вызываться внутри транзакции
+     * результаты элементов сбрасываются перед записью, поэтому пакет можно повторить после отката
+     * @param batch
+     */
+    public void append(List<? extends Item> batch)
+    {
+        if (batch.isEmpty())
+        {
+            return;
+        }
+        Set<Long> animalIds = new HashSet();
+        Set<Long> pointIds = new HashSet();
+        for (Item item: batch)
+        {
+            item.visit = null;
+            item.rejection = null;
+            animalIds.add(item.animalId);
+            pointIds.add(item.pointId);
+        }
+        Map<Long, AnimalState> animals = new HashMap();
+        Set<Long> lastVisitIds = new HashSet();
+        for (AnimalView view: animalRepository.findViewsByIdIn(animalIds))
+        {
+            AnimalState state = new AnimalState(view);
+            if (state.lastVisitId!=null)
+            {
+                lastVisitIds.add(state.lastVisitId);
+            }
+            animals.put(view.getId(), state);
+        }
+        Map<Long, Long> lastVisitPoints = new HashMap();
+        if (!lastVisitIds.isEmpty())
+        {
+            animalVisitedLocationRepository.findAllById(lastVisitIds).forEach(visit->lastVisitPoints.put(visit.getId(), visit.getLocationPoint().getId()));
+        }
+        for (AnimalState state: animals.values())
+        {
+            state.lastPointId = state.lastVisitId!=null ? lastVisitPoints.get(state.lastVisitId) : null;
+        }
+        Map<Long, LocationPoint> points = new HashMap();
+        locationPointRepository.findAllById(pointIds).forEach(point->points.put(point.getId(), point));
+        Map<Long, AnimalState> changed = new LinkedHashMap();
+        for (Item item: batch)
+        {
+            AnimalState animal = animals.get(item.animalId);
+            LocationPoint point = points.get(item.pointId);
+            if (animal==null || point==null)
+            {
+                String message = "animal with id "+item.animalId+" or locationPoint with id "+item.pointId+" was not found";
+                log.warn(message);
+                item.rejection = new ResponseStatusException(HttpStatus.NOT_FOUND, message);
+                continue;
+            }
+            try
+            {
+                AnimalVisitedLocationServiceImpl.checkAppend(animal.view.getLifeStatus(), animal.view.getChippingLocationId(), animal.lastPointId, item.pointId);
+            }
+            catch (ResponseStatusException ex)
+            {
+                item.rejection = ex;
+                continue;
+            }
+            AnimalVisitedLocation entity = new AnimalVisitedLocation();
+            entity.setLocationPoint(point);
+            entity.setDateTimeOfVisitLocationPoint(item.visitedAt!=null ? item.visitedAt : DateTimeParser.now());
+            entity = animalVisitedLocationRepository.save(entity);
+            animal.append(entity);
+            changed.put(item.animalId, animal);
+            item.visit = animalVisitedLocationMapper.toDto(entity);
+            animalEventStream.visited(animal.view, entity);
+        }
+        if (changed.isEmpty())
+        {
+            return;
+        }
+        List<Object[]> updates = new ArrayList(changed.size());
+        for (AnimalState state: changed.values())
+        {
+            updates.add(new Object[]{state.visitedLocationIds.toString(), state.view.getId(), state.view.getVersion()});
+        }
+        //вставки посещений выполняются сразу (IDENTITY), обновления животных - одним пакетом
+        int[] counts = jdbcTemplate.batchUpdate(APPEND_VISITS, updates);
+        for (int i=0; i<counts.length; i++)
+        {
+            if (counts[i]==0)
+            {
+                throw new OptimisticLockingFailureException("animal with id "+updates.get(i)[1]+" was concurrently modified");
+            }
+        }
+    }
+
+    /**
+     * добавление посещения и его результат в текущей попытке записи
+     */
+    public static class Item {
+
+        final Long animalId;
+
+        final Long pointId;
+
+        final OffsetDateTime visitedAt;
+
+        AnimalVisitedLocationDto visit;
+
+        ResponseStatusException rejection;
+
+        Item(Long animalId, Long pointId, OffsetDateTime visitedAt)
+        {
+            this.animalId = animalId;
+            this.pointId = pointId;
+            this.visitedAt = visitedAt;
+        }
+    }
+
+    /**
+     * состояние животного в пакете: прочитанная проекция, точка последнего посещения
+     * и столбец visited_locations с уже добавленными в пакете посещениями
+     */
+    private static class AnimalState {
+
+        final AnimalView view;
+
+        final Long lastVisitId;
+
+        final StringBuilder visitedLocationIds;
+
+        Long lastPointId;
+
+        AnimalState(AnimalView view)
+        {
+            this.view = view;
+            long[] ids = IdArrays.parse(view.getVisitedLocationIds());
+            this.lastVisitId = ids.length>0 ? ids[ids.length-1] : null;
+            this.visitedLocationIds = new StringBuilder(IdArrays.join(ids));
+        }
+
+        void append(AnimalVisitedLocation visit)
+        {
+            if (visitedLocationIds.length()>0)
+            {
+                visitedLocationIds.append(',');
+            }
+            visitedLocationIds.append(visit.getId());
+            lastPointId = visit.getLocationPoint().getId();
+        }
+    }
+}
@@ -0,0 +1,517 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.config.ResponseStatusException;
+import com.example.demo.model.VisitJournalCheckpoint;
+import com.example.demo.repository.VisitJournalCheckpointRepository;
+import com.example.demo.service.VisitJournal;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * реализация журнала посещений на отображенных в память сегментах (JournalSegment)
+ * запись: под блокировкой запись в слот активного сегмента (при заполнении - новый сегмент),
+ * затем групповой сброс на диск - один force покрывает все записи, сделанные к его началу;
+ * в базу переносятся только сброшенные записи, поэтому номер не может быть выдан повторно после сбоя
+ * восстановление при запуске: сегменты читаются по порядку до первой записи с неверным номером
+ * или контрольной суммой, остаток этого сегмента обнуляется, последующие сегменты удаляются
+ * перенос: пакет записей применяется через VisitBatchWriter и вместе с ним в той же транзакции
+ * сохраняется номер последней записи (visit_journal_checkpoint), поэтому повтор после сбоя
+ * не добавляет посещения дважды; при недоступной базе перенос повторяется с растущей паузой
+ * полностью перенесенные сегменты удаляются
+ * метрики: visits.journal.lag (записей), visits.journal.lag.seconds (возраст старейшей
+ * неперенесенной записи), visits.journal.appended/applied/rejected, visits.journal.segments
+ * @author ROMAN
+ * @date 2023-03-12
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "animal.visits.journal.enabled", havingValue = "true")
+public class VisitJournalImpl implements VisitJournal, InitializingBean, DisposableBean {
+
+    private static final String ID_FILE = "journal.id";
+
+    private final VisitBatchWriter visitBatchWriter;
+
+    private final VisitJournalCheckpointRepository visitJournalCheckpointRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Path directory;
+
+    private final int segmentRecords;
+
+    private final int batchSize;
+
+    private final long idleMillis;
+
+    private final long retryMillis;
+
+    private final long maxRetryMillis;
+
+    private final int maxAttempts;
+
+    private final NavigableMap<Long, JournalSegment> segments = new ConcurrentSkipListMap();
+
+    private final CRC32 writeChecksum = new CRC32();
+
+    private final CRC32 readChecksum = new CRC32();
+
+    private final Object syncLock = new Object();
+
+    private final Thread applier;
+
+    private String journalId;
+
+    private volatile JournalSegment active;
+
+    private volatile long nextSequence;
+
+    private volatile long syncedSequence;
+
+    private volatile long appliedSequence = -1;
+
+    private volatile boolean running;
+
+    private volatile boolean isDatabaseAvailable = true;
+
+    private Counter appended;
+
+    private Counter applied;
+
+    private Counter rejected;
+
+    @Autowired
+    public VisitJournalImpl(VisitBatchWriter visitBatchWriter, VisitJournalCheckpointRepository visitJournalCheckpointRepository,
+                            TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+                            @Value("${animal.visits.journal.dir:./data/visit-journal}") String directory,
+                            @Value("${animal.visits.journal.segment-records:65536}") int segmentRecords,
+                            @Value("${animal.visits.journal.batch-size:500}") int batchSize,
+                            @Value("${animal.visits.journal.idle-millis:50}") long idleMillis,
+                            @Value("${animal.visits.journal.retry-millis:1000}") long retryMillis,
+                            @Value("${animal.visits.journal.max-retry-millis:30000}") long maxRetryMillis,
+                            @Value("${animal.visits.append.max-attempts:5}") int maxAttempts) {
+        this.visitBatchWriter = visitBatchWriter;
+        this.visitJournalCheckpointRepository = visitJournalCheckpointRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.directory = Paths.get(directory);
+        this.segmentRecords = segmentRecords;
+        this.batchSize = batchSize;
+        this.idleMillis = idleMillis;
+        this.retryMillis = retryMillis;
+        this.maxRetryMillis = maxRetryMillis;
+        this.maxAttempts = maxAttempts;
+        this.applier = new Thread(this::run, "visit-journal-applier");
+        this.applier.setDaemon(true);
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException
+    {
+        open();
+        applier.start();
+    }
+
+    /**
+     * восстановление журнала и регистрация метрик без запуска потока переноса
+     * @throws IOException
+     */
+    void open() throws IOException
+    {
+        Files.createDirectories(directory);
+        recover();
+        appended = Counter.builder("visits.journal.appended").register(meterRegistry);
+        applied = Counter.builder("visits.journal.applied").register(meterRegistry);
+        rejected = Counter.builder("visits.journal.rejected").register(meterRegistry);
+        Gauge.builder("visits.journal.lag", this, VisitJournalImpl::lag).register(meterRegistry);
+        Gauge.builder("visits.journal.lag.seconds", this, VisitJournalImpl::lagSeconds).register(meterRegistry);
+        Gauge.builder("visits.journal.segments", segments, Map::size).register(meterRegistry);
+        running = true;
+    }
+
+    @Override
+    public void destroy() throws IOException, InterruptedException
+    {
+        synchronized (this)
+        {
+            running = false;
+        }
+        applier.interrupt();
+        applier.join(TimeUnit.SECONDS.toMillis(10));
+        if (active==null)
+        {
+            return;
+        }
+        active.force();
+        for (JournalSegment segment: segments.values())
+        {
+            segment.close();
+        }
+        log.info("visit journal {} closed at sequence {}, applied {}", journalId, nextSequence - 1, appliedSequence);
+    }
+
+    @Override
+    public long append(Long animalId, Long pointId) throws ResponseStatusException
+    {
+        long sequence;
+        synchronized (this)
+        {
+            if (!running)
+            {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "visit journal is stopped");
+            }
+            if (nextSequence>active.lastSequence())
+            {
+                rotate();
+            }
+            sequence = nextSequence;
+            active.write(sequence, animalId, pointId, System.currentTimeMillis(), writeChecksum);
+            nextSequence = sequence + 1;
+        }
+        sync(sequence);
+        appended.increment();
+        return sequence;
+    }
+
+    @Override
+    public boolean isDatabaseAvailable()
+    {
+        return isDatabaseAvailable;
+    }
+
+    /**
+     * новый активный сегмент; предыдущий сбрасывается на диск целиком,
+     * поэтому групповому сбросу достаточно сбрасывать только активный сегмент
+     * @throws ResponseStatusException
+     */
+    private void rotate() throws ResponseStatusException
+    {
+        try
+        {
+            active.force();
+            JournalSegment segment = JournalSegment.open(directory, nextSequence, segmentRecords);
+            segments.put(segment.firstSequence(), segment);
+            active = segment;
+            log.info("visit journal segment {} opened", segment.firstSequence());
+        }
+        catch (IOException ex)
+        {
+            log.error("visit journal segment was not opened: {}", ex.getMessage());
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "visit journal is not writable");
+        }
+    }
+
+    /**
+     * групповой сброс на диск: поток, дождавшийся блокировки, сбрасывает все записи,
+     * сделанные к этому моменту, и остальные ожидающие выходят без повторного force
+     * @param sequence
+     */
+    private void sync(long sequence)
+    {
+        if (syncedSequence>=sequence)
+        {
+            return;
+        }
+        synchronized (syncLock)
+        {
+            if (syncedSequence>=sequence)
+            {
+                return;
+            }
+            long target = nextSequence - 1;
+            active.force();
+            syncedSequence = target;
+        }
+    }
+
+    private String readJournalId() throws IOException
+    {
+        Path file = directory.resolve(ID_FILE);
+        if (Files.exists(file))
+        {
+            return Files.readString(file, StandardCharsets.UTF_8).trim();
+        }
+        log.warn("visit journal id file is missing, already applied records may be applied again");
+        return createJournalId();
+    }
+
+    /**
+     * новый идентификатор журнала; пустой каталог означает новый журнал (активный сегмент
+     * никогда не удаляется), поэтому нумерация с 1 не должна сверяться со старой отметкой в базе
+     * @return journal id
+     * @throws IOException
+     */
+    private String createJournalId() throws IOException
+    {
+        String id = UUID.randomUUID().toString();
+        Files.writeString(directory.resolve(ID_FILE), id, StandardCharsets.UTF_8);
+        log.info("visit journal {} created in {}", id, directory.toAbsolutePath());
+        return id;
+    }
+
+    /**
+     * восстановление после запуска или сбоя
+     * @throws IOException
+     */
+    private void recover() throws IOException
+    {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory))
+        {
+            files = stream.filter(path->JournalSegment.parseFirstSequence(path)>0).sorted().collect(Collectors.toList());
+        }
+        long expected = -1;
+        boolean isBroken = false;
+        for (Path file: files)
+        {
+            long first = JournalSegment.parseFirstSequence(file);
+            if (expected<0)
+            {
+                expected = first;
+            }
+            if (isBroken || first!=expected)
+            {
+                log.warn("visit journal segment {} is past the recovered tail and was deleted", file.getFileName());
+                Files.delete(file);
+                isBroken = true;
+                continue;
+            }
+            JournalSegment segment = JournalSegment.open(directory, first, segmentRecords);
+            segments.put(first, segment);
+            long[] record = new long[3];
+            while (expected<=segment.lastSequence() && segment.read(expected, record, readChecksum))
+            {
+                expected++;
+            }
+            if (expected<=segment.lastSequence())
+            {
+                segment.clearFrom(expected);
+                isBroken = true;
+            }
+        }
+        if (segments.isEmpty())
+        {
+            expected = 1;
+            JournalSegment segment = JournalSegment.open(directory, expected, segmentRecords);
+            segments.put(expected, segment);
+            journalId = createJournalId();
+        }
+        else
+        {
+            journalId = readJournalId();
+        }
+        active = segments.lastEntry().getValue();
+        nextSequence = expected;
+        syncedSequence = expected - 1;
+        log.info("visit journal {} recovered: sequences {}..{} in {} segments", journalId, segments.firstKey(), expected - 1, segments.size());
+    }
+
+    private void run()
+    {
+        long pause = 0;
+        long backoff = retryMillis;
+        while (running)
+        {
+            try
+            {
+                if (pause>0)
+                {
+                    Thread.sleep(pause);
+                }
+                if (appliedSequence<0)
+                {
+                    loadCheckpoint();
+                }
+                pause = applyBatch()>0 ? 0 : idleMillis;
+                backoff = retryMillis;
+                isDatabaseAvailable = true;
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch (DataAccessException | TransactionException ex)
+            {
+                log.warn("visit journal apply failed, retry in {} ms: {}", backoff, ex.getMessage());
+                isDatabaseAvailable = false;
+                pause = backoff;
+                backoff = Math.min(backoff*2, maxRetryMillis);
+            }
+            catch (RuntimeException ex)
+            {
+                log.error("visit journal apply failed, retry in {} ms", maxRetryMillis, ex);
+                pause = maxRetryMillis;
+            }
+        }
+    }
+
+    /**
+     * чтение отметки перенесенных записей; без отметки переносится все, что осталось в журнале
+     */
+    void loadCheckpoint()
+    {
+        appliedSequence = visitJournalCheckpointRepository.findById(journalId)
+                .map(VisitJournalCheckpoint::getAppliedSequence)
+                .orElse(segments.firstKey() - 1);
+        log.info("visit journal {} applied up to sequence {}", journalId, appliedSequence);
+    }
+
+    /**
+     * перенос очередного пакета сброшенных на диск записей
+     * @return number of records applied
+     */
+    int applyBatch()
+    {
+        long from = appliedSequence + 1;
+        long to = Math.min(syncedSequence, from + batchSize - 1);
+        if (to<from)
+        {
+            return 0;
+        }
+        List<JournalItem> batch = read(from, to);
+        VisitJournalCheckpoint checkpoint = new VisitJournalCheckpoint();
+        checkpoint.setJournalId(journalId);
+        checkpoint.setAppliedSequence(to);
+        for (int attempt = 1; ; attempt++)
+        {
+            try
+            {
+                transactionTemplate.executeWithoutResult(status -> {
+                    visitBatchWriter.append(batch);
+                    visitJournalCheckpointRepository.save(checkpoint);
+                });
+                break;
+            }
+            catch (OptimisticLockingFailureException ex)
+            {
+                if (attempt>=maxAttempts)
+                {
+                    throw ex;
+                }
+                log.info("concurrent append in visit journal batch {}..{}, retry {}", from, to, attempt);
+            }
+        }
+        for (JournalItem item: batch)
+        {
+            if (item.rejection!=null)
+            {
+                log.warn("visit journal record {} rejected: {}", item.sequence, item.rejection.getMessage());
+                rejected.increment();
+            }
+        }
+        appliedSequence = to;
+        applied.increment(to - from + 1);
+        release();
+        return (int) (to - from + 1);
+    }
+
+    private List<JournalItem> read(long from, long to)
+    {
+        List<JournalItem> batch = new ArrayList((int) (to - from + 1));
+        long[] record = new long[3];
+        for (long sequence = from; sequence<=to; sequence++)
+        {
+            JournalSegment segment = segments.floorEntry(sequence).getValue();
+            if (segment.read(sequence, record, readChecksum))
+            {
+                OffsetDateTime visitedAt = OffsetDateTime.ofInstant(Instant.ofEpochMilli(record[2]), ZoneOffset.UTC);
+                batch.add(new JournalItem(sequence, record[0], record[1], visitedAt));
+            }
+            else
+            {
+                log.error("visit journal record {} is corrupted and was skipped", sequence);
+                rejected.increment();
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * удаление полностью перенесенных сегментов, кроме активного
+     */
+    private void release()
+    {
+        for (JournalSegment segment: segments.values())
+        {
+            if (segment==active || segment.lastSequence()>appliedSequence)
+            {
+                break;
+            }
+            segments.remove(segment.firstSequence());
+            try
+            {
+                segment.delete();
+                log.info("visit journal segment {} applied and deleted", segment.firstSequence());
+            }
+            catch (IOException ex)
+            {
+                log.warn("visit journal segment {} was not deleted: {}", segment.firstSequence(), ex.getMessage());
+            }
+        }
+    }
+
+    private double lag()
+    {
+        return appliedSequence<0 ? Double.NaN : syncedSequence - appliedSequence;
+    }
+
+    private double lagSeconds()
+    {
+        long oldest = appliedSequence + 1;
+        if (appliedSequence<0 || oldest>syncedSequence)
+        {
+            return 0;
+        }
+        Map.Entry<Long, JournalSegment> entry = segments.floorEntry(oldest);
+        if (entry==null)
+        {
+            return 0;
+        }
+        return Math.max(0, System.currentTimeMillis() - entry.getValue().visitedAt(oldest))/1000.0;
+    }
+
+    /**
+     * запись журнала, переносимая в базу
+     */
+    private static class JournalItem extends VisitBatchWriter.Item {
+
+        private final long sequence;
+
+        JournalItem(long sequence, Long animalId, Long pointId, OffsetDateTime visitedAt)
+        {
+            super(animalId, pointId, visitedAt);
+            this.sequence = sequence;
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package com.example.demo.service.mapper;
 
 import com.example.demo.model.Account;
+import com.example.demo.repository.projection.AccountView;
 import com.example.demo.service.dto.AccountDto;
 import com.example.demo.service.dto.AccountViewDto;
-import org.springframework.stereotype.Service;
+import org.mapstruct.BeanMapping;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 /**
  * интерфейс, преобразующий сущности Account, AccountViewDto и AccountDto
@@ -11,14 +14,22 @@ import org.springframework.stereotype.Service;
  * @date 2023-02-17
  * @version 1.0
  */
-@Service
+@Mapper(config = MapperSettings.class)
 public interface AccountMapper
 {
     /**
      * convert AccountDto to Account
+     * роли и authorities (UserDetails) не передаются через dto и остаются значениями по умолчанию
      * @param dto
      * @return Account
      */
+    @BeanMapping(ignoreByDefault = true)
+    @Mapping(target = "id", source = "id")
+    @Mapping(target = "firstName", source = "firstName")
+    @Mapping(target = "lastName", source = "lastName")
+    @Mapping(target = "email", source = "email")
+    @Mapping(target = "password", source = "password")
+    @Mapping(target = "version", source = "version")
     Account toEntity(AccountDto dto);
 
     /**
@@ -41,4 +52,11 @@ public interface AccountMapper
      * @return AccountViewDto
      */
     AccountViewDto convertDtoToViewDto(AccountDto dto);
-}
\ No newline at end of file
+
+    /**
+     * convert AccountView projection to AccountViewDto
+     * @param view
+     * @return AccountViewDto
+     */
+    AccountViewDto convertViewToViewDto(AccountView view);
+}
@@ -1,29 +1,83 @@
 package com.example.demo.service.mapper;
 
+import com.example.demo.config.IdArrays;
 import com.example.demo.model.Animal;
+import com.example.demo.repository.projection.AnimalView;
 import com.example.demo.service.dto.AnimalDto;
-import org.springframework.stereotype.Service;
+import com.example.demo.service.dto.AnimalReferences;
+import org.mapstruct.AfterMapping;
+import org.mapstruct.Context;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
 
 /**
  * интерфейс, преобразующий сущности Animal и AnimalDto
+ * связанные сущности не загружаются маппером, а передаются уже загруженными через AnimalReferences
  * @author ROMAN
  * @date 2023-02-17
  * @version 1.0
  */
-@Service
+@Mapper(config = MapperSettings.class)
 public interface AnimalMapper {
 
     /**
-     * convert AnimalDto to Animal
+     * convert AnimalDto to Animal using already loaded references
      * @param dto
+     * @param references id типов и посещенных точек и точка чипирования, проверенные сервисом
      * @return Animal
      */
-    Animal toEntity(AnimalDto dto);
+    @Mapping(target = "animalTypeIds", ignore = true)
+    @Mapping(target = "chippingLocationId", ignore = true)
+    @Mapping(target = "visitedLocationIds", ignore = true)
+    @Mapping(target = "deathDatetime", source = "deathDateTime")
+    @Mapping(target = "updatedAt", ignore = true)
+    Animal toEntity(AnimalDto dto, @Context AnimalReferences references);
 
     /**
      * convert Animal to AnimalDto
      * @param entity
      * @return AnimalDto
      */
+    @Mapping(target = "animalTypes", source = "animalTypeIds")
+    @Mapping(target = "chippingLocationId", source = "chippingLocationId.id")
+    @Mapping(target = "visitedLocations", source = "visitedLocationIds")
+    @Mapping(target = "deathDateTime", source = "deathDatetime")
     AnimalDto toDto(Animal entity);
+
+    /**
+     * convert AnimalView projection to AnimalDto
+     * @param view
+     * @return AnimalDto
+     */
+    @Mapping(target = "animalTypes", source = "animalTypeIds")
+    @Mapping(target = "visitedLocations", source = "visitedLocationIds")
+    @Mapping(target = "deathDateTime", source = "deathDatetime")
+    AnimalDto toDto(AnimalView view);
+
+    /**
+     * подстановка связанных сущностей из контекста
+     * @param entity
+     * @param references
+     */
+    @AfterMapping
+    default void applyReferences(@MappingTarget Animal entity, @Context AnimalReferences references)
+    {
+        if (references!=null)
+        {
+            entity.setAnimalTypeIds(IdArrays.join(references.getAnimalTypeIds()));
+            entity.setChippingLocationId(references.getChippingLocation());
+            entity.setVisitedLocationIds(IdArrays.join(references.getVisitedLocationIds()));
+        }
+    }
+
+    /**
+     * разбор строки id через запятую столбцов animal_types и visited_locations
+     * @param ids
+     * @return array of ids
+     */
+    default long[] parseIds(String ids)
+    {
+        return IdArrays.parse(ids);
+    }
 }
@@ -2,7 +2,8 @@ package com.example.demo.service.mapper;
 
 import com.example.demo.model.AnimalType;
 import com.example.demo.service.dto.AnimalTypeDto;
-import org.springframework.stereotype.Service;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import java.util.Set;
 
 /**
@@ -11,7 +12,7 @@ import java.util.Set;
  * @date 2023-20-17
  * @version 1.0
  */
-@Service
+@Mapper(config = MapperSettings.class)
 public interface AnimalTypeMapper {
 
     /**
@@ -19,6 +20,7 @@ public interface AnimalTypeMapper {
      * @param dto
      * @return AnimalType
      */
+    @Mapping(target = "updatedAt", ignore = true)
     AnimalType toEntity(AnimalTypeDto dto);
 
     /**
@@ -1,30 +1,34 @@
 package com.example.demo.service.mapper;
 
 import com.example.demo.model.AnimalVisitedLocation;
+import com.example.demo.repository.projection.AnimalVisitedLocationView;
 import com.example.demo.service.dto.AnimalVisitedLocationDto;
-import org.springframework.stereotype.Service;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 /**
  * интерфейс, преобразующий AnimalVisitedLocation и AnimalVisitedLocationDto
+ * сущности посещенных точек создаются только сервисами, поэтому обратного преобразования нет
  * @author ROMAN
  * @date 2023-02-17
  * @version 1.0
  */
-@Service
+@Mapper(config = MapperSettings.class)
 public interface AnimalVisitedLocationMapper {
 
-    /**
-     * convert AnimalVisitedLocationDto to AnimalVisitedLocation
-     * @param dto
-     * @return AnimalVisitedLocation
-     */
-    AnimalVisitedLocation toEntity(AnimalVisitedLocationDto dto);
-
     /**
      * convert AnimalVisitedLocation to AnimalVisitedLocationDto
      * @param entity
      * @return AnimalVisitedLocationDto
      */
+    @Mapping(target = "locationPointId", source = "locationPoint.id")
     AnimalVisitedLocationDto toDto(AnimalVisitedLocation entity);
 
+    /**
+     * convert AnimalVisitedLocationView projection to AnimalVisitedLocationDto
+     * @param view
+     * @return AnimalVisitedLocationDto
+     */
+    AnimalVisitedLocationDto toDto(AnimalVisitedLocationView view);
+
 }
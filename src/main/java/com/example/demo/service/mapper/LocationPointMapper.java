@@ -1,13 +1,15 @@
 package com.example.demo.service.mapper;
 
 import com.example.demo.model.LocationPoint;
+import com.example.demo.repository.projection.LocationPointView;
 import com.example.demo.service.dto.LocationPointDto;
-import org.springframework.stereotype.Service;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 /**
  * интерфейс, преобразующий LocationPoint и LocationPointDto
  */
-@Service
+@Mapper(config = MapperSettings.class)
 public interface LocationPointMapper {
 
     /**
@@ -15,6 +17,7 @@ public interface LocationPointMapper {
      * @param dto
      * @return LocationPoint
      */
+    @Mapping(target = "updatedAt", ignore = true)
     LocationPoint toEntity(LocationPointDto dto);
 
     /**
@@ -24,4 +27,11 @@ public interface LocationPointMapper {
      */
     LocationPointDto toDto(LocationPoint entity);
 
+    /**
+     * convert LocationPointView projection to LocationPointDto
+     * @param view
+     * @return LocationPointDto
+     */
+    LocationPointDto toDto(LocationPointView view);
+
 }
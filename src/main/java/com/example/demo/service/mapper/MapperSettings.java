@@ -0,0 +1,19 @@
+package com.example.demo.service.mapper;
+
+import org.mapstruct.MapperConfig;
+import org.mapstruct.NullValueCheckStrategy;
+import org.mapstruct.ReportingPolicy;
+
+/**
+ * общие настройки мапперов MapStruct
+ * реализации генерируются при компиляции как spring бины и не обращаются к сервисам и репозиториям;
+ * свойство целевого класса без источника считается ошибкой компиляции
+ * @author ROMAN
+ * @date 2023-03-09
+ * @version 1.0
+ */
+@MapperConfig(componentModel = "spring",
+        nullValueCheckStrategy = NullValueCheckStrategy.ALWAYS,
+        unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface MapperSettings {
+}
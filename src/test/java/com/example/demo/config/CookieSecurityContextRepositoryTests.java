@@ -0,0 +1,145 @@
+package com.example.demo.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+
+import javax.servlet.http.Cookie;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * шифрование, проверка и перевыпуск cookie SESSION_TOKEN
+ * @author ROMAN
+ * @date 2023-03-14
+ * @version 1.0
+ */
+class CookieSecurityContextRepositoryTests {
+
+	private static final String SECRET = "test-secret";
+
+	private static final long TTL = 1800;
+
+	private static final Instant ISSUED = Instant.parse("2023-03-14T10:00:00Z");
+
+	@Test
+	void cookieRoundTrip() throws Exception {
+		Cookie cookie = issue(at(0));
+		assertTrue(cookie.isHttpOnly());
+		assertTrue(cookie.getSecure());
+		assertEquals("/", cookie.getPath());
+		assertEquals(TTL, cookie.getMaxAge());
+
+		Authentication authentication = load(at(0), cookie.getValue()).getAuthentication();
+		assertNotNull(authentication);
+		assertTrue(authentication.isAuthenticated());
+		assertEquals("user@mail.com", authentication.getName());
+		assertEquals(Set.of("ROLE_USER", "ROLE_ADMIN"), AuthorityUtils.authorityListToSet(authentication.getAuthorities()));
+	}
+
+	@Test
+	void tamperedTagIsRejected() throws Exception {
+		byte[] data = Base64.getUrlDecoder().decode(issue(at(0)).getValue());
+		data[data.length - 1] ^= 1;
+		String token = Base64.getUrlEncoder().withoutPadding().encodeToString(data);
+
+		assertNull(load(at(0), token).getAuthentication());
+	}
+
+	@Test
+	void cookieOfOtherSecretIsRejected() throws Exception {
+		String token = issue(at(0)).getValue();
+		CookieSecurityContextRepository other = new CookieSecurityContextRepository("other-secret", TTL, true, at(0));
+
+		assertNull(other.loadContext(holder(token)).getAuthentication());
+	}
+
+	@Test
+	void malformedCookieIsRejected() throws Exception {
+		assertNull(load(at(0), "not a token").getAuthentication());
+		assertNull(load(at(0), "AAAA").getAuthentication());
+	}
+
+	@Test
+	void cookieExpiresAfterTtl() throws Exception {
+		String token = issue(at(0)).getValue();
+
+		assertNotNull(load(at(TTL - 1), token).getAuthentication());
+		assertNull(load(at(TTL), token).getAuthentication());
+	}
+
+	@Test
+	void cookieIsReissuedAfterHalfOfTtl() throws Exception {
+		String token = issue(at(0)).getValue();
+
+		assertNull(reissue(at(TTL/2 - 1), token));
+
+		Cookie cookie = reissue(at(TTL/2), token);
+		assertNotNull(cookie);
+		assertNotEquals(token, cookie.getValue());
+		assertNull(load(at(TTL), token).getAuthentication());
+		assertNotNull(load(at(TTL), cookie.getValue()).getAuthentication());
+	}
+
+	@Test
+	void anonymousContextIsNotSaved() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		repository(at(0)).saveContext(new SecurityContextImpl(), new MockHttpServletRequest(), response);
+
+		assertNull(response.getCookie(CookieSecurityContextRepository.COOKIE_NAME));
+	}
+
+	private static Clock at(long seconds) {
+		return Clock.fixed(ISSUED.plusSeconds(seconds), ZoneOffset.UTC);
+	}
+
+	private static CookieSecurityContextRepository repository(Clock clock) throws Exception {
+		return new CookieSecurityContextRepository(SECRET, TTL, true, clock);
+	}
+
+	private static Cookie issue(Clock clock) throws Exception {
+		SecurityContext context = new SecurityContextImpl(new UsernamePasswordAuthenticationToken("user@mail.com", null,
+				AuthorityUtils.createAuthorityList("ROLE_USER", "ROLE_ADMIN")));
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		repository(clock).saveContext(context, new MockHttpServletRequest(), response);
+		Cookie cookie = response.getCookie(CookieSecurityContextRepository.COOKIE_NAME);
+		assertNotNull(cookie);
+		return cookie;
+	}
+
+	/**
+	 * загрузка контекста по cookie и сохранение его в том же запросе, как это делает SecurityContextPersistenceFilter
+	 * @return new cookie or null if the cookie was not reissued
+	 */
+	private static Cookie reissue(Clock clock, String token) throws Exception {
+		CookieSecurityContextRepository repository = repository(clock);
+		HttpRequestResponseHolder holder = holder(token);
+		SecurityContext context = repository.loadContext(holder);
+		assertNotNull(context.getAuthentication());
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		repository.saveContext(context, holder.getRequest(), response);
+		return response.getCookie(CookieSecurityContextRepository.COOKIE_NAME);
+	}
+
+	private static SecurityContext load(Clock clock, String token) throws Exception {
+		return repository(clock).loadContext(holder(token));
+	}
+
+	private static HttpRequestResponseHolder holder(String token) {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setCookies(new Cookie(CookieSecurityContextRepository.COOKIE_NAME, token));
+		return new HttpRequestResponseHolder(request, new MockHttpServletResponse());
+	}
+
+}
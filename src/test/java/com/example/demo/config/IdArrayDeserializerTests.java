@@ -0,0 +1,53 @@
+package com.example.demo.config;
+
+import com.example.demo.service.dto.AnimalDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * чтение id типов и посещенных точек AnimalDto
+ * @author ROMAN
+ * @date 2023-03-14
+ * @version 1.0
+ */
+class IdArrayDeserializerTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+	@Test
+	void integersAreRead() throws Exception {
+		AnimalDto dto = objectMapper.readValue("{\"animalTypes\":[3,1],\"visitedLocations\":[]}", AnimalDto.class);
+		assertArrayEquals(new long[]{3, 1}, dto.getAnimalTypes());
+		assertArrayEquals(new long[0], dto.getVisitedLocations());
+	}
+
+	@Test
+	void longArrayGrowsPastInitialCapacity() throws Exception {
+		StringBuilder json = new StringBuilder("{\"visitedLocations\":[");
+		for (int i=1; i<=100; i++)
+		{
+			json.append(i>1 ? "," : "").append(i);
+		}
+		AnimalDto dto = objectMapper.readValue(json.append("]}").toString(), AnimalDto.class);
+		assertEquals(100, dto.getVisitedLocations().length);
+		assertEquals(100, dto.getVisitedLocations()[99]);
+	}
+
+	@Test
+	void nullArrayStaysNull() throws Exception {
+		AnimalDto dto = objectMapper.readValue("{\"animalTypes\":null}", AnimalDto.class);
+		assertNull(dto.getAnimalTypes());
+	}
+
+	@Test
+	void nonIntegerIdsAreRejected() {
+		assertThrows(MismatchedInputException.class, () -> objectMapper.readValue("{\"animalTypes\":[\"1\"]}", AnimalDto.class));
+		assertThrows(MismatchedInputException.class, () -> objectMapper.readValue("{\"animalTypes\":[1.5]}", AnimalDto.class));
+		assertThrows(MismatchedInputException.class, () -> objectMapper.readValue("{\"animalTypes\":[null]}", AnimalDto.class));
+		assertThrows(MismatchedInputException.class, () -> objectMapper.readValue("{\"visitedLocations\":1}", AnimalDto.class));
+	}
+
+}
@@ -0,0 +1,76 @@
+package com.example.demo.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * разбор и запись списков id столбцов animal_types и visited_locations
+ * @author ROMAN
+ * @date 2023-03-14
+ * @version 1.0
+ */
+class IdArraysTests {
+
+	@Test
+	void parseEmptyInput() {
+		assertArrayEquals(new long[0], IdArrays.parse(null));
+		assertArrayEquals(new long[0], IdArrays.parse(""));
+		assertArrayEquals(new long[0], IdArrays.parse(","));
+	}
+
+	@Test
+	void parseKeepsInputOrder() {
+		assertArrayEquals(new long[]{3, 1, 2}, IdArrays.parse("3,1,2"));
+		assertArrayEquals(new long[]{7}, IdArrays.parse("7"));
+	}
+
+	@Test
+	void parseDropsEmptyTokensAndTrailingCommas() {
+		assertArrayEquals(new long[]{1, 2}, IdArrays.parse("1,2,"));
+		assertArrayEquals(new long[]{1, 2}, IdArrays.parse(",1,,2"));
+	}
+
+	@Test
+	void parseDropsOverflow() {
+		assertArrayEquals(new long[]{Long.MAX_VALUE}, IdArrays.parse("9223372036854775807"));
+		assertArrayEquals(new long[]{1, 2}, IdArrays.parse("1,9223372036854775808,2"));
+		assertArrayEquals(new long[]{1}, IdArrays.parse("1,99999999999999999999999"));
+	}
+
+	@Test
+	void parseDropsJunk() {
+		assertArrayEquals(new long[]{1, 3}, IdArrays.parse("1,2a,3"));
+		assertArrayEquals(new long[]{1}, IdArrays.parse("1, 2"));
+		assertArrayEquals(new long[]{2}, IdArrays.parse("-1,2"));
+		assertArrayEquals(new long[0], IdArrays.parse("abc"));
+	}
+
+	@Test
+	void joinIsInverseOfParse() {
+		long[] ids = {5, 10, 15};
+		assertEquals("5,10,15", IdArrays.join(ids));
+		assertArrayEquals(ids, IdArrays.parse(IdArrays.join(ids)));
+		assertEquals("", IdArrays.join(IdArrays.EMPTY));
+		assertEquals("", IdArrays.join(Arrays.<Long>asList(), Long::longValue));
+	}
+
+	@Test
+	void distinctSortsAndRemovesDuplicates() {
+		assertArrayEquals(new long[]{1, 2, 3}, IdArrays.distinct(new long[]{3, 1, 2, 3, 1}));
+	}
+
+	@Test
+	void replaceKeepsSetSemantics() {
+		long[] ids = {3, 1};
+		assertArrayEquals(new long[]{1, 2, 3}, IdArrays.replace(ids, null, 2L));
+		assertArrayEquals(new long[]{1, 3}, IdArrays.replace(ids, null, 3L));
+		assertArrayEquals(new long[]{1}, IdArrays.replace(ids, 3L, null));
+		assertArrayEquals(new long[]{1, 4}, IdArrays.replace(ids, 3L, 4L));
+		assertTrue(IdArrays.contains(ids, 3));
+		assertFalse(IdArrays.contains(ids, 2));
+	}
+
+}
@@ -0,0 +1,120 @@
+package com.example.demo.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * выбор основной базы или реплики для текущей транзакции и пользователя
+ * @author ROMAN
+ * @date 2023-03-14
+ * @version 1.0
+ */
+class ReplicaRoutingDataSourceTests {
+
+	private static final String PRIMARY = "primary";
+
+	@AfterEach
+	void tearDown() {
+		TransactionSynchronizationManager.clear();
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void readOnlyTransactionsRotateOverReplicas() {
+		ReplicaRoutingDataSource dataSource = dataSource(5000);
+		transaction(true);
+		assertEquals(0, dataSource.determineCurrentLookupKey());
+		assertEquals(1, dataSource.determineCurrentLookupKey());
+		assertEquals(0, dataSource.determineCurrentLookupKey());
+	}
+
+	@Test
+	void writeTransactionGoesToPrimary() {
+		ReplicaRoutingDataSource dataSource = dataSource(5000);
+		transaction(false);
+		assertEquals(PRIMARY, dataSource.determineCurrentLookupKey());
+	}
+
+	@Test
+	void writerReadsFromPrimaryWithinStickyWindow() {
+		ReplicaRoutingDataSource dataSource = dataSource(60_000);
+		login("writer@mail.com");
+		transaction(false);
+		assertEquals(PRIMARY, dataSource.determineCurrentLookupKey());
+
+		transaction(true);
+		assertEquals(PRIMARY, dataSource.determineCurrentLookupKey());
+		login("reader@mail.com");
+		assertEquals(0, dataSource.determineCurrentLookupKey());
+	}
+
+	@Test
+	void stickyWindowExpires() throws InterruptedException {
+		ReplicaRoutingDataSource dataSource = dataSource(20);
+		login("writer@mail.com");
+		transaction(false);
+		dataSource.determineCurrentLookupKey();
+
+		Thread.sleep(50);
+		transaction(true);
+		assertEquals(0, dataSource.determineCurrentLookupKey());
+		assertEquals(1, dataSource.determineCurrentLookupKey());
+	}
+
+	@Test
+	void connectionOutsideTransactionIsNotSticky() {
+		ReplicaRoutingDataSource dataSource = dataSource(60_000);
+		login("writer@mail.com");
+		assertEquals(PRIMARY, dataSource.determineCurrentLookupKey());
+
+		transaction(true);
+		assertEquals(0, dataSource.determineCurrentLookupKey());
+	}
+
+	@Test
+	void anonymousWriteIsNotSticky() {
+		ReplicaRoutingDataSource dataSource = dataSource(60_000);
+		transaction(false);
+		assertEquals(PRIMARY, dataSource.determineCurrentLookupKey());
+
+		transaction(true);
+		assertEquals(0, dataSource.determineCurrentLookupKey());
+	}
+
+	@Test
+	void zeroStickyMillisDisablesStickiness() {
+		ReplicaRoutingDataSource dataSource = dataSource(0);
+		login("writer@mail.com");
+		transaction(false);
+		dataSource.determineCurrentLookupKey();
+
+		transaction(true);
+		assertEquals(0, dataSource.determineCurrentLookupKey());
+	}
+
+	private static ReplicaRoutingDataSource dataSource(long stickyMillis) {
+		return new ReplicaRoutingDataSource(mock(DataSource.class), Arrays.asList(mock(DataSource.class), mock(DataSource.class)), stickyMillis);
+	}
+
+	private static void transaction(boolean isReadOnly) {
+		TransactionSynchronizationManager.setActualTransactionActive(true);
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(isReadOnly);
+	}
+
+	private static void login(String username) {
+		SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(username, null,
+				Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"))));
+	}
+
+}
@@ -0,0 +1,65 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.config.ResponseStatusException;
+import com.example.demo.model.LifeStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * правила добавления посещенной точки (AnimalVisitedLocationServiceImpl.checkAppend)
+ * повтор определяется по точке локации последнего посещения, а не по id посещения
+ * @author ROMAN
+ * @date 2023-03-14
+ * @version 1.0
+ */
+class AnimalVisitedLocationAppendRulesTests {
+
+	private static final Long CHIPPING_POINT = 1L;
+
+	@Test
+	void firstVisitIsAccepted() throws Exception {
+		AnimalVisitedLocationServiceImpl.checkAppend(LifeStatus.ALIVE, CHIPPING_POINT, null, 2L);
+	}
+
+	@Test
+	void nextPointIsAccepted() throws Exception {
+		AnimalVisitedLocationServiceImpl.checkAppend(LifeStatus.ALIVE, CHIPPING_POINT, 2L, 3L);
+	}
+
+	@Test
+	void pointOfTheLastVisitIsRejected() {
+		assertRejected(LifeStatus.ALIVE, 2L, 2L);
+	}
+
+	/**
+	 * до исправления в user-029 с точкой сравнивался id последнего посещения:
+	 * точка с тем же числовым значением, что и id посещения, отклонялась, а повтор точки пропускался
+	 */
+	@Test
+	void idOfTheLastVisitIsNotComparedWithThePoint() throws Exception {
+		Long lastVisitId = 7L;
+		Long lastPointId = 3L;
+		AnimalVisitedLocationServiceImpl.checkAppend(LifeStatus.ALIVE, CHIPPING_POINT, lastPointId, lastVisitId);
+		assertRejected(LifeStatus.ALIVE, lastPointId, lastPointId);
+	}
+
+	@Test
+	void chippingPointIsRejected() {
+		assertRejected(LifeStatus.ALIVE, null, CHIPPING_POINT);
+		assertRejected(LifeStatus.ALIVE, 2L, CHIPPING_POINT);
+	}
+
+	@Test
+	void deadAnimalIsRejected() {
+		assertRejected(LifeStatus.DEAD, null, 2L);
+	}
+
+	private static void assertRejected(LifeStatus lifeStatus, Long lastPointId, Long pointId) {
+		ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+				() -> AnimalVisitedLocationServiceImpl.checkAppend(lifeStatus, CHIPPING_POINT, lastPointId, pointId));
+		assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+	}
+
+}
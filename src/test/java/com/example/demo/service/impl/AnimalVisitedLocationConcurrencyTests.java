@@ -0,0 +1,160 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.config.DateTimeParser;
+import com.example.demo.config.ResponseStatusException;
+import com.example.demo.model.Account;
+import com.example.demo.model.Animal;
+import com.example.demo.model.AnimalType;
+import com.example.demo.model.Gender;
+import com.example.demo.model.LifeStatus;
+import com.example.demo.model.LocationPoint;
+import com.example.demo.repository.AccountRepository;
+import com.example.demo.repository.AnimalRepository;
+import com.example.demo.repository.AnimalTypeRepository;
+import com.example.demo.repository.LocationPointRepository;
+import com.example.demo.service.AnimalVisitedLocationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * конкурентное добавление посещенных точек одному животному (база данных из application.properties)
+ * аккаунт, тип, точки и животное создаются тестом, начальные данные базы не используются
+ * @author ROMAN
+ * @date 2023-03-14
+ * @version 1.0
+ */
+@SpringBootTest(properties = "animal.visits.append.max-attempts=100")
+class AnimalVisitedLocationConcurrencyTests {
+
+	private static final int THREADS = 16;
+
+	@Autowired
+	private AnimalVisitedLocationService animalVisitedLocationService;
+
+	@Autowired
+	private AnimalRepository animalRepository;
+
+	@Autowired
+	private LocationPointRepository locationPointRepository;
+
+	@Autowired
+	private AccountRepository accountRepository;
+
+	@Autowired
+	private AnimalTypeRepository animalTypeRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Test
+	void concurrentAppendsKeepEveryVisit() throws Exception {
+		List<Long> pointIds = new ArrayList();
+		for (int i=0; i<=THREADS; i++)
+		{
+			pointIds.add(newPoint().getId());
+		}
+		Long animalId = newAnimal(pointIds.get(0));
+
+		//одно последовательное добавление - приращение версии за одно добавление
+		long initialVersion = version(animalId);
+		animalVisitedLocationService.add(animalId, pointIds.get(1));
+		long versionStep = version(animalId) - initialVersion;
+		assertTrue(versionStep>0);
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList();
+		try
+		{
+			for (int i=2; i<=THREADS; i++)
+			{
+				Long pointId = pointIds.get(i);
+				futures.add(executor.submit(() -> {
+					start.await();
+					return animalVisitedLocationService.add(animalId, pointId);
+				}));
+			}
+			start.countDown();
+			for (Future<?> future: futures)
+			{
+				future.get(60, TimeUnit.SECONDS);
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+
+		Animal animal = transactionTemplate.execute(status -> animalRepository.findById(animalId).get());
+		Set<Long> visited = new HashSet();
+		for (String id: animal.getVisitedLocationIds().split(","))
+		{
+			visited.add(Long.valueOf(id));
+		}
+		assertEquals(THREADS, animal.getVisitedLocationIds().split(",").length);
+		assertEquals(THREADS, visited.size());
+		assertEquals(initialVersion + versionStep*THREADS, animal.getVersion().longValue());
+	}
+
+	@Test
+	void appendOfCurrentPointIsRejected() throws Exception {
+		LocationPoint chipping = newPoint();
+		Long pointId = newPoint().getId();
+		Long animalId = newAnimal(chipping.getId());
+		animalVisitedLocationService.add(animalId, pointId);
+
+		ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> animalVisitedLocationService.add(animalId, pointId));
+		assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+	}
+
+	private Long version(Long animalId)
+	{
+		return transactionTemplate.execute(status -> animalRepository.findById(animalId).get().getVersion());
+	}
+
+	private LocationPoint newPoint()
+	{
+		LocationPoint point = new LocationPoint();
+		point.setLatitude(ThreadLocalRandom.current().nextDouble(-89.0, 89.0));
+		point.setLongitude(ThreadLocalRandom.current().nextDouble(-179.0, 179.0));
+		return transactionTemplate.execute(status -> locationPointRepository.save(point));
+	}
+
+	private Long newAnimal(Long chippingPointId)
+	{
+		return transactionTemplate.execute(status -> {
+			String suffix = UUID.randomUUID().toString();
+			Account chipper = new Account();
+			chipper.setFirstName("chipper");
+			chipper.setLastName("concurrency");
+			chipper.setEmail("chipper-" + suffix + "@example.com");
+			chipper.setPassword("password");
+			chipper = accountRepository.save(chipper);
+			AnimalType type = new AnimalType();
+			type.setType("type-" + suffix);
+			type = animalTypeRepository.save(type);
+
+			Animal animal = new Animal();
+			animal.setAnimalTypeIds(String.valueOf(type.getId()));
+			animal.setWeight(10.0f);
+			animal.setHeight(1.0f);
+			animal.setLength(1.0f);
+			animal.setGender(Gender.MALE);
+			animal.setLifeStatus(LifeStatus.ALIVE);
+			animal.setChippingDateTime(DateTimeParser.now());
+			animal.setChipperId(chipper.getId());
+			animal.setChippingLocationId(locationPointRepository.findById(chippingPointId).get());
+			animal.setVisitedLocationIds("");
+			return animalRepository.save(animal).getId();
+		});
+	}
+
+}
@@ -0,0 +1,167 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.model.VisitJournalCheckpoint;
+import com.example.demo.repository.VisitJournalCheckpointRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * восстановление журнала посещений после сбоя и повтор переноса от отметки в базе
+ * журнал открывается без потока переноса, пакеты переносятся вызовом applyBatch
+ * @author ROMAN
+ * @date 2023-03-14
+ * @version 1.0
+ */
+class VisitJournalImplTests {
+
+	private static final int CHECKSUM_OFFSET = 32;
+
+	@TempDir
+	Path directory;
+
+	private VisitBatchWriter visitBatchWriter;
+
+	private VisitJournalCheckpointRepository visitJournalCheckpointRepository;
+
+	private final List<Long> appliedAnimals = new ArrayList();
+
+	private final List<VisitJournalImpl> journals = new ArrayList();
+
+	@BeforeEach
+	void setUp() {
+		visitBatchWriter = mock(VisitBatchWriter.class);
+		visitJournalCheckpointRepository = mock(VisitJournalCheckpointRepository.class);
+		when(visitJournalCheckpointRepository.findById(anyString())).thenReturn(Optional.empty());
+		doAnswer(invocation -> {
+			List<? extends VisitBatchWriter.Item> batch = invocation.getArgument(0);
+			batch.forEach(item -> appliedAnimals.add(item.animalId));
+			return null;
+		}).when(visitBatchWriter).append(anyList());
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		for (VisitJournalImpl journal: journals)
+		{
+			journal.destroy();
+		}
+	}
+
+	@Test
+	void tornTailIsTruncated() throws Exception {
+		VisitJournalImpl journal = open(64);
+		appendRecords(journal, 5);
+		journal.destroy();
+		//запись 5 оборвана до контрольной суммы
+		overwrite(1, 5, CHECKSUM_OFFSET, new byte[4]);
+
+		journal = open(64);
+		assertEquals(5, journal.append(50L, 1050L));
+		journal.loadCheckpoint();
+		assertEquals(5, journal.applyBatch());
+		assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 50L), appliedAnimals);
+	}
+
+	@Test
+	void badChecksumMidSegmentDropsTheRestOfTheJournal() throws Exception {
+		VisitJournalImpl journal = open(64);
+		appendRecords(journal, 10);
+		journal.destroy();
+		//поврежден animalId записи 4, записи 5..10 за ней не должны быть приняты
+		overwrite(1, 4, 8, new byte[]{(byte) 0xFF});
+
+		journal = open(64);
+		assertEquals(4, journal.append(40L, 1040L));
+		journal.destroy();
+
+		//остаток сегмента обнулен, поэтому следующее восстановление не возвращает записи 5..10
+		journal = open(64);
+		assertEquals(5, journal.append(50L, 1050L));
+		journal.loadCheckpoint();
+		journal.applyBatch();
+		assertEquals(Arrays.asList(1L, 2L, 3L, 40L, 50L), appliedAnimals);
+	}
+
+	@Test
+	void sequenceGapBetweenSegmentsDeletesLaterSegments() throws Exception {
+		VisitJournalImpl journal = open(4);
+		appendRecords(journal, 10);
+		journal.destroy();
+		assertTrue(Files.exists(segmentFile(9)));
+		Files.delete(segmentFile(5));
+
+		journal = open(4);
+		assertFalse(Files.exists(segmentFile(9)));
+		assertEquals(5, journal.append(50L, 1050L));
+		assertTrue(Files.exists(segmentFile(5)));
+		journal.loadCheckpoint();
+		journal.applyBatch();
+		assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 50L), appliedAnimals);
+	}
+
+	@Test
+	void applyReplaysFromCheckpoint() throws Exception {
+		VisitJournalImpl journal = open(64);
+		appendRecords(journal, 6);
+		journal.destroy();
+		String journalId = new String(Files.readAllBytes(directory.resolve("journal.id")), StandardCharsets.UTF_8).trim();
+		VisitJournalCheckpoint checkpoint = new VisitJournalCheckpoint();
+		checkpoint.setJournalId(journalId);
+		checkpoint.setAppliedSequence(3L);
+		when(visitJournalCheckpointRepository.findById(journalId)).thenReturn(Optional.of(checkpoint));
+
+		//перезапуск после переноса записей 1..3
+		journal = open(64);
+		journal.loadCheckpoint();
+		assertEquals(3, journal.applyBatch());
+		assertEquals(Arrays.asList(4L, 5L, 6L), appliedAnimals);
+		verify(visitJournalCheckpointRepository).save(argThat((VisitJournalCheckpoint saved) -> saved.getJournalId().equals(journalId) && saved.getAppliedSequence()==6L));
+		assertEquals(0, journal.applyBatch());
+	}
+
+	private VisitJournalImpl open(int segmentRecords) throws IOException {
+		VisitJournalImpl journal = new VisitJournalImpl(visitBatchWriter, visitJournalCheckpointRepository,
+				new TransactionTemplate(mock(PlatformTransactionManager.class)), new SimpleMeterRegistry(),
+				directory.toString(), segmentRecords, 500, 50, 1000, 30000, 5);
+		journal.open();
+		journals.add(journal);
+		return journal;
+	}
+
+	private static void appendRecords(VisitJournalImpl journal, int count) throws Exception {
+		for (long i=1; i<=count; i++)
+		{
+			assertEquals(i, journal.append(i, 1000 + i));
+		}
+	}
+
+	private Path segmentFile(long firstSequence) {
+		return directory.resolve(JournalSegment.fileName(firstSequence));
+	}
+
+	private void overwrite(long firstSequence, long sequence, int offset, byte[] bytes) throws IOException {
+		try (FileChannel channel = FileChannel.open(segmentFile(firstSequence), StandardOpenOption.WRITE))
+		{
+			channel.write(ByteBuffer.wrap(bytes), (sequence - firstSequence)*JournalSegment.RECORD_SIZE + offset);
+		}
+	}
+
+}